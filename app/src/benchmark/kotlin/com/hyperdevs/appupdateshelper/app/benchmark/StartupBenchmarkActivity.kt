@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper.app.benchmark
+
+import android.content.Intent
+import android.os.Bundle
+import android.util.Log
+import androidx.appcompat.app.AppCompatActivity
+import com.hyperdevs.appupdateshelper.AppUpdateInfoCache
+import com.hyperdevs.appupdateshelper.AppUpdatesHelper
+import com.hyperdevs.appupdateshelper.FakeAppUpdatesHelper
+import com.hyperdevs.appupdateshelper.app.R
+import com.hyperdevs.appupdateshelper.app.databinding.FlexibleUpdateActivityBinding
+
+/**
+ * Copy of the flexible update screen that is only shipped in the `benchmark` build type, used by the
+ * startup macrobenchmarks to compare how the helper is set up.
+ */
+class StartupBenchmarkActivity : AppCompatActivity() {
+
+    companion object {
+        private const val TAG = "StartupBenchmark"
+
+        /** Intent extra used by the startup macrobenchmarks to choose how the helper is set up. */
+        const val EXTRA_HELPER_MODE = "helper_mode"
+
+        /** No helper at all, used as the baseline. */
+        const val HELPER_MODE_NONE = "none"
+
+        /** [FakeAppUpdatesHelper] that checks for updates in onCreate(). */
+        const val HELPER_MODE_EAGER = "eager"
+
+        /** [FakeAppUpdatesHelper] with an [AppUpdateInfoCache] that checks for updates after the first frame. */
+        const val HELPER_MODE_LAZY = "lazy"
+    }
+
+    private var appUpdatesHelper: AppUpdatesHelper? = null
+
+    private lateinit var binding: FlexibleUpdateActivityBinding
+
+    override fun onCreate(savedInstanceState: Bundle?) {
+        super.onCreate(savedInstanceState)
+        binding = FlexibleUpdateActivityBinding.inflate(layoutInflater).apply {
+            setContentView(root)
+        }
+
+        setTitle(R.string.activity_flexible_update_title)
+        binding.startUpdateButton.isEnabled = false
+
+        val helperMode = intent.getStringExtra(EXTRA_HELPER_MODE)
+        val helper = when (helperMode) {
+            HELPER_MODE_NONE -> return
+            HELPER_MODE_EAGER -> FakeAppUpdatesHelper(this)
+            HELPER_MODE_LAZY -> FakeAppUpdatesHelper(this).apply {
+                setAppUpdateInfoCache(AppUpdateInfoCache(this@StartupBenchmarkActivity))
+            }
+            else -> throw IllegalArgumentException("Unknown helper mode: $helperMode")
+        }
+        appUpdatesHelper = helper
+
+        helper.startListening(this) { installState ->
+            Log.d(TAG, "Update install state: $installState")
+        }
+
+        if (helperMode == HELPER_MODE_EAGER) {
+            checkForUpdates(helper)
+        } else {
+            // Wait for the first frame so the check doesn't compete with it
+            binding.root.post { checkForUpdates(helper) }
+        }
+    }
+
+    private fun checkForUpdates(helper: AppUpdatesHelper) {
+        helper.getAppUpdateInfo { appUpdateInfoResult ->
+            Log.d(TAG, "App update info: $appUpdateInfoResult")
+        }
+    }
+
+    override fun onActivityResult(requestCode: Int, resultCode: Int, data: Intent?) {
+        super.onActivityResult(requestCode, resultCode, data)
+        appUpdatesHelper?.onUpdateStatusResult(requestCode, resultCode)
+    }
+}
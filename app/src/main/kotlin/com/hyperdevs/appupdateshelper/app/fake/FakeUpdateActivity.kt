@@ -67,7 +67,7 @@ class FakeUpdateActivity : AppCompatActivity() {
 
         fakeAppUpdatesHelper = FakeAppUpdatesHelper(this)
 
-        fakeAppUpdatesHelper.startListening { installState ->
+        fakeAppUpdatesHelper.startListening(this) { installState ->
 
             Log.d(TAG, "Update install state: $installState")
 
@@ -182,11 +182,6 @@ class FakeUpdateActivity : AppCompatActivity() {
         // the flow
         fakeAppUpdatesHelper.onUpdateStatusResult(requestCode, resultCode)
     }
-
-    override fun onDestroy() {
-        super.onDestroy()
-        fakeAppUpdatesHelper.stopListening()
-    }
 }
 
 private fun FakeAppUpdatesHelper.configAvailableUpdate() {
@@ -60,10 +60,11 @@ class FlexibleUpdateActivity : AppCompatActivity() {
 
         setTitle(R.string.activity_flexible_update_title)
 
-        // Instantiate the app updates helper and start using it with startListening()
+        // Instantiate the app updates helper and start using it with startListening(). Binding it to
+        // the lifecycle stops the updates while in the background and there's no need to call stopListening()
         appUpdatesHelper = AppUpdatesHelper(this)
 
-        appUpdatesHelper.startListening { installState ->
+        appUpdatesHelper.startListening(this) { installState ->
             // The update process is tracked here from the moment the user clicks "Update" until the
             // app is fully installed
             Log.d(TAG, "Update install state: $installState")
@@ -187,10 +188,4 @@ class FlexibleUpdateActivity : AppCompatActivity() {
         // update events
         appUpdatesHelper.onUpdateStatusResult(requestCode, resultCode)
     }
-
-    override fun onDestroy() {
-        // Stop listening for updates with stopListening()
-        super.onDestroy()
-        appUpdatesHelper.stopListening()
-    }
 }
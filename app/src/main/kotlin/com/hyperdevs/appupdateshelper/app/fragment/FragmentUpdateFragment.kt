@@ -66,10 +66,11 @@ class FragmentUpdateFragment : Fragment() {
 
     override fun onViewCreated(view: View, savedInstanceState: Bundle?) {
         super.onViewCreated(view, savedInstanceState)
-        // Instantiate the app updates helper and start using it with startListening()
+        // Instantiate the app updates helper and start using it with startListening(). Binding it to
+        // the lifecycle stops the updates while in the background and there's no need to call stopListening()
         appUpdatesHelper = AppUpdatesHelper(requireContext())
 
-        appUpdatesHelper.startListening { installState ->
+        appUpdatesHelper.startListening(viewLifecycleOwner) { installState ->
             // The update process is tracked here from the moment the user clicks "Update" until the
             // app is fully installed
             Log.d(TAG, "Update install state: $installState")
@@ -193,10 +194,4 @@ class FragmentUpdateFragment : Fragment() {
         // update events
         appUpdatesHelper.onUpdateStatusResult(requestCode, resultCode)
     }
-
-    override fun onDestroyView() {
-        // Stop listening for updates with stopListening()
-        super.onDestroyView()
-        appUpdatesHelper.stopListening()
-    }
 }
\ No newline at end of file
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.annotation.NonNull;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+/**
+ * Measures building and hashing {@link AppUpdateInfoResult}s, which happens for every update info request
+ * and cache hit. Besides the time, the benchmark output includes the allocations per operation.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AppUpdateInfoResultBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    // Results are accumulated here so the measured calls can't be optimized away
+    private int sink;
+
+    @Test
+    public void construction() {
+        BenchmarkState state = benchmarkRule.getState();
+        int versionCode = 0;
+        while (state.keepRunning()) {
+            sink += createResult(versionCode++).getVersionCode();
+        }
+    }
+
+    @Test
+    public void hashCodeOfResult() {
+        AppUpdateInfoResult result = createResult(1);
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            // Includes the boxing of the Objects.hash() varargs
+            sink += result.hashCode();
+        }
+    }
+
+    @NonNull
+    private static AppUpdateInfoResult createResult(int versionCode) {
+        return new AppUpdateInfoResult(
+                true,
+                versionCode,
+                AppUpdateInfoResult.Availability.UPDATE_AVAILABLE,
+                AppUpdateInfoResult.UPDATE_PRIORITY_UNKNOWN,
+                true,
+                true,
+                AppUpdateInfoResult.VERSION_STALENESS_UNKNOWN,
+                null);
+    }
+}
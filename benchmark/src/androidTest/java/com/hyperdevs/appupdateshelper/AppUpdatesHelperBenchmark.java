@@ -0,0 +1,84 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import android.content.Context;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+/**
+ * Measures the cost of creating the first {@link AppUpdatesHelper} of the process, which usually happens in
+ * {@code onCreate()}.
+ * <p>
+ * The manager shared between helpers is dropped before every iteration, outside of the measured time, so each
+ * one pays the cold creation cost. It lives in the library package to reach that package-private reset.
+ */
+@RunWith(AndroidJUnit4.class)
+public class AppUpdatesHelperBenchmark {
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    @After
+    public void tearDown() {
+        SharedAppUpdateManager.resetProcessInstance();
+    }
+
+    /**
+     * Cost of building a helper. The app update manager is only created when the helper needs it,
+     * so this should be close to zero.
+     */
+    @Test
+    public void createHelper() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            SharedAppUpdateManager.resetProcessInstance();
+            state.resumeTiming();
+
+            new AppUpdatesHelper(context);
+        }
+    }
+
+    /**
+     * Cost of building a helper and its app update manager right away, which is what the helper constructor
+     * used to do. Kept as a baseline to compare against {@link #createHelper()}.
+     */
+    @Test
+    public void createHelperWithManager() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            SharedAppUpdateManager.resetProcessInstance();
+            state.resumeTiming();
+
+            new AppUpdatesHelper(context);
+            SharedAppUpdateManager.get(context).getManager();
+        }
+    }
+}
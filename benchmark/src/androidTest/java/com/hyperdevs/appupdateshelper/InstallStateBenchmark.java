@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import com.google.android.play.core.appupdate.testing.FakeAppUpdateManager;
+import com.google.android.play.core.install.model.InstallErrorCode;
+import com.google.android.play.core.install.model.InstallStatus;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import androidx.annotation.NonNull;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+/**
+ * Measures the hot paths that run for every install state received from Play Core. Besides the time,
+ * the benchmark output includes the allocations per operation.
+ * <p>
+ * It lives in the library package to reach the package-private mapping methods.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InstallStateBenchmark {
+    private static final int[] INSTALL_STATUSES = {
+            InstallStatus.UNKNOWN,
+            InstallStatus.PENDING,
+            InstallStatus.DOWNLOADING,
+            InstallStatus.DOWNLOADED,
+            InstallStatus.INSTALLING,
+            InstallStatus.INSTALLED,
+            InstallStatus.FAILED,
+            InstallStatus.CANCELED
+    };
+    private static final int[] INSTALL_ERROR_CODES = {
+            InstallErrorCode.NO_ERROR,
+            InstallErrorCode.ERROR_UNKNOWN,
+            InstallErrorCode.ERROR_API_NOT_AVAILABLE,
+            InstallErrorCode.ERROR_INSTALL_NOT_ALLOWED,
+            InstallErrorCode.ERROR_PLAY_STORE_NOT_FOUND,
+            InstallErrorCode.ERROR_INTERNAL_ERROR
+    };
+    private static final AppUpdateInstallState.ErrorCode[] ERROR_CODES = AppUpdateInstallState.ErrorCode.values();
+    private static final long TOTAL_BYTES = 50_000_000;
+
+    @Rule
+    public BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    // Results are accumulated here so the measured calls can't be optimized away
+    private int sink;
+
+    @Test
+    public void statusFromInstallStatus() {
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            sink += AppUpdateInstallState.Status.from(INSTALL_STATUSES[i++ % INSTALL_STATUSES.length]).ordinal();
+        }
+    }
+
+    @Test
+    public void errorCodeFromInstallErrorCode() {
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            sink += AppUpdateInstallState.ErrorCode.from(INSTALL_ERROR_CODES[i++ % INSTALL_ERROR_CODES.length]).ordinal();
+        }
+    }
+
+    @Test
+    public void errorCodeGetValue() {
+        BenchmarkState state = benchmarkRule.getState();
+        int i = 0;
+        while (state.keepRunning()) {
+            sink += ERROR_CODES[i++ % ERROR_CODES.length].getValue();
+        }
+    }
+
+    @Test
+    public void installStateWithoutBytes() {
+        BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            sink += AppUpdateInstallState.of(AppUpdateInstallState.Status.PENDING,
+                    AppUpdateInstallState.ErrorCode.NO_ERROR,
+                    AppUpdateInstallState.BYTES_UNKNOWN,
+                    AppUpdateInstallState.BYTES_UNKNOWN).getStatus().ordinal();
+        }
+    }
+
+    @Test
+    public void installStateWithBytes() {
+        BenchmarkState state = benchmarkRule.getState();
+        long bytes = 0;
+        while (state.keepRunning()) {
+            bytes = (bytes + 1) % TOTAL_BYTES;
+            sink += AppUpdateInstallState.of(AppUpdateInstallState.Status.DOWNLOADING,
+                    AppUpdateInstallState.ErrorCode.NO_ERROR,
+                    bytes,
+                    TOTAL_BYTES).getStatus().ordinal();
+        }
+    }
+
+    @Test
+    public void dispatchToInstallStateListener() {
+        AppUpdatesHelper helper = createHelper();
+        helper.addInstallStateListener(new InstallStateListener() {
+            @Override
+            public void onInstallStateUpdate(@NonNull AppUpdateInstallState state) {
+                sink += (int) state.getBytesDownloaded();
+            }
+        });
+
+        dispatchDownloadingStates(helper);
+    }
+
+    @Test
+    public void dispatchToInstallProgressListener() {
+        AppUpdatesHelper helper = createHelper();
+        helper.addInstallProgressListener(new InstallProgressListener() {
+            @Override
+            public void onInstallProgress(@NonNull AppUpdateInstallState.Status status,
+                                          @NonNull AppUpdateInstallState.ErrorCode errorCode,
+                                          long bytesDownloaded,
+                                          long totalBytesToDownload) {
+                sink += (int) bytesDownloaded;
+            }
+        });
+
+        dispatchDownloadingStates(helper);
+    }
+
+    private void dispatchDownloadingStates(@NonNull AppUpdatesHelper helper) {
+        BenchmarkState state = benchmarkRule.getState();
+        long bytes = 0;
+        while (state.keepRunning()) {
+            bytes = (bytes + 1) % TOTAL_BYTES;
+            helper.onInstallState(AppUpdateInstallState.Status.DOWNLOADING,
+                    AppUpdateInstallState.ErrorCode.NO_ERROR,
+                    bytes,
+                    TOTAL_BYTES);
+        }
+    }
+
+    @NonNull
+    private static AppUpdatesHelper createHelper() {
+        return new AppUpdatesHelper(
+                new FakeAppUpdateManager(InstrumentationRegistry.getInstrumentation().getTargetContext()));
+    }
+}
@@ -18,21 +18,15 @@
 
 package com.hyperdevs.appupdateshelper;
 
-import com.google.android.play.core.appupdate.AppUpdateInfo;
-import com.google.android.play.core.install.model.AppUpdateType;
-import com.google.android.play.core.install.model.InstallStatus;
-import com.google.android.play.core.install.model.UpdateAvailability;
+import com.hyperdevs.appupdateshelper.PlayCoreValues.InstallStatus;
+import com.hyperdevs.appupdateshelper.PlayCoreValues.UpdateAvailability;
 
 import java.util.Objects;
 
 import androidx.annotation.Nullable;
-import androidx.annotation.VisibleForTesting;
-
-import static com.google.android.play.core.install.model.InstallStatus.DOWNLOADED;
 
 /**
- * Class that represents the result of
- * {@link AppUpdatesHelper#getAppUpdateInfo(GetUpdateInfoListener)}.
+ * Class that represents the result of {@code AppUpdatesHelper.getAppUpdateInfo()}.
  */
 public class AppUpdateInfoResult {
     public static final int VERSION_UNKNOWN = -1;
@@ -49,26 +43,6 @@ public class AppUpdateInfoResult {
     private final int clientVersionStalenessDays;
     private final Exception exception;
 
-    AppUpdateInfoResult(@Nullable AppUpdateInfo info,
-                        @Nullable Exception exception) {
-        this.isSuccessful = info != null && exception == null;
-        this.versionCode = (info != null) ? info.availableVersionCode() : VERSION_UNKNOWN;
-        this.updateAvailability = Availability.from(
-                (info != null) ? info.updateAvailability() : UpdateAvailability.UNKNOWN,
-                (info != null) ? info.installStatus() : InstallStatus.UNKNOWN);
-        this.updatePriority = info != null ? info.updatePriority() : UPDATE_PRIORITY_UNKNOWN;
-        this.canInstallFlexibleUpdate = info != null && info.isUpdateTypeAllowed(AppUpdateType.FLEXIBLE);
-        this.canInstallImmediateUpdate = info != null && info.isUpdateTypeAllowed(AppUpdateType.IMMEDIATE);
-
-        Integer infoVersionStalenessDays =
-                info != null ? info.clientVersionStalenessDays() : Integer.valueOf(VERSION_STALENESS_UNKNOWN);
-        //noinspection ConstantConditions
-        this.clientVersionStalenessDays = infoVersionStalenessDays != null ? infoVersionStalenessDays : VERSION_STALENESS_UNKNOWN;
-
-        this.exception = exception;
-    }
-
-    @VisibleForTesting
     @SuppressWarnings("checkstyle:ParameterNumber")
     AppUpdateInfoResult(boolean isSuccessful,
                         int versionCode,
@@ -88,6 +62,21 @@ public class AppUpdateInfoResult {
         this.exception = exception;
     }
 
+    /**
+     * Returns an unsuccessful result without update info.
+     */
+    static AppUpdateInfoResult failed(@Nullable Exception exception) {
+        return new AppUpdateInfoResult(
+                false,
+                VERSION_UNKNOWN,
+                Availability.UNKNOWN,
+                UPDATE_PRIORITY_UNKNOWN,
+                false,
+                false,
+                VERSION_STALENESS_UNKNOWN,
+                exception);
+    }
+
     public boolean isSuccessful() {
         return isSuccessful;
     }
@@ -139,7 +128,7 @@ public class AppUpdateInfoResult {
                 canInstallImmediateUpdate == that.canInstallImmediateUpdate &&
                 clientVersionStalenessDays == that.clientVersionStalenessDays &&
                 updateAvailability == that.updateAvailability &&
-                exception.equals(that.exception);
+                Objects.equals(exception, that.exception);
     }
 
     @Override
@@ -173,14 +162,14 @@ public class AppUpdateInfoResult {
         UPDATE_IN_PROGRESS,
         UPDATE_DOWNLOADED;
 
-        static Availability from(@UpdateAvailability int availability, @InstallStatus int installStatus) {
+        static Availability from(int availability, int installStatus) {
             switch (availability) {
                 case UpdateAvailability.UPDATE_NOT_AVAILABLE:
                     return UPDATE_NOT_AVAILABLE;
                 case UpdateAvailability.UPDATE_AVAILABLE:
                     return UPDATE_AVAILABLE;
                 case UpdateAvailability.DEVELOPER_TRIGGERED_UPDATE_IN_PROGRESS:
-                    if (installStatus == DOWNLOADED) {
+                    if (installStatus == InstallStatus.DOWNLOADED) {
                         return UPDATE_DOWNLOADED;
                     } else {
                         return UPDATE_IN_PROGRESS;
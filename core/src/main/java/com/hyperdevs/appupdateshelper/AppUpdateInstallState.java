@@ -18,9 +18,8 @@
 
 package com.hyperdevs.appupdateshelper;
 
-import com.google.android.play.core.install.InstallState;
-import com.google.android.play.core.install.model.InstallErrorCode;
-import com.google.android.play.core.install.model.InstallStatus;
+import com.hyperdevs.appupdateshelper.PlayCoreValues.InstallErrorCode;
+import com.hyperdevs.appupdateshelper.PlayCoreValues.InstallStatus;
 
 import java.util.Objects;
 
@@ -30,9 +29,17 @@ import androidx.annotation.NonNull;
  * Class that contains information about the app update installation state.
  */
 public class AppUpdateInstallState {
+    public static final long RATE_UNKNOWN = -1;
+    public static final long TIME_REMAINING_UNKNOWN = -1;
+
     static final long BYTES_UNKNOWN = 0;
     static final long PROGRESS_UNKNOWN = 0;
 
+    /**
+     * Shared instances for every state without byte information, indexed by status and error code.
+     */
+    private static final AppUpdateInstallState[][] BYTELESS_STATES = createBytelessStates();
+
     @NonNull
     private final Status status;
     @NonNull
@@ -40,11 +47,21 @@ public class AppUpdateInstallState {
     private final long bytesDownloaded;
     private final long totalBytesToDownload;
     private final float downloadProgress;
+    private final long bytesPerSecond;
+    private final long estimatedTimeRemainingMillis;
 
     AppUpdateInstallState(@NonNull Status status,
                           @NonNull ErrorCode errorCode,
                           long bytesDownloaded,
                           long totalBytesToDownload) {
+        this(status, errorCode, bytesDownloaded, totalBytesToDownload, RATE_UNKNOWN);
+    }
+
+    AppUpdateInstallState(@NonNull Status status,
+                          @NonNull ErrorCode errorCode,
+                          long bytesDownloaded,
+                          long totalBytesToDownload,
+                          long bytesPerSecond) {
         this.status = status;
         this.errorCode = errorCode;
         this.bytesDownloaded = bytesDownloaded;
@@ -56,13 +73,63 @@ public class AppUpdateInstallState {
         } else {
             this.downloadProgress = bytesDownloaded * 100f / totalBytesToDownload;
         }
+        this.bytesPerSecond = bytesPerSecond;
+        if (status == Status.DOWNLOADING && bytesPerSecond > 0 && totalBytesToDownload > bytesDownloaded) {
+            // Rounded up, so a download is never reported as finished before it is
+            this.estimatedTimeRemainingMillis = ((totalBytesToDownload - bytesDownloaded) * 1000 + bytesPerSecond - 1)
+                    / bytesPerSecond;
+        } else {
+            this.estimatedTimeRemainingMillis = TIME_REMAINING_UNKNOWN;
+        }
+    }
+
+    /**
+     * Returns an install state with the given values. States without byte information are immutable
+     * shared instances, so no allocation is made for them.
+     */
+    @NonNull
+    static AppUpdateInstallState of(@NonNull Status status,
+                                    @NonNull ErrorCode errorCode,
+                                    long bytesDownloaded,
+                                    long totalBytesToDownload) {
+        return of(status, errorCode, bytesDownloaded, totalBytesToDownload, RATE_UNKNOWN);
     }
 
-    AppUpdateInstallState(@NonNull InstallState state) {
-        this(Status.from(state),
-                ErrorCode.from(state),
-                state.bytesDownloaded(),
-                state.totalBytesToDownload());
+    /**
+     * Returns an install state with the given values and download rate, as estimated by a
+     * {@link DownloadRateEstimator}.
+     */
+    @NonNull
+    static AppUpdateInstallState of(@NonNull Status status,
+                                    @NonNull ErrorCode errorCode,
+                                    long bytesDownloaded,
+                                    long totalBytesToDownload,
+                                    long bytesPerSecond) {
+        if (bytesDownloaded == BYTES_UNKNOWN && totalBytesToDownload == BYTES_UNKNOWN) {
+            return BYTELESS_STATES[status.ordinal()][errorCode.ordinal()];
+        }
+        return new AppUpdateInstallState(status, errorCode, bytesDownloaded, totalBytesToDownload, bytesPerSecond);
+    }
+
+    /**
+     * Returns the state used before any install state update has been received.
+     */
+    @NonNull
+    public static AppUpdateInstallState unknown() {
+        return BYTELESS_STATES[Status.UNKNOWN.ordinal()][ErrorCode.NO_ERROR.ordinal()];
+    }
+
+    private static AppUpdateInstallState[][] createBytelessStates() {
+        Status[] statuses = Status.values();
+        ErrorCode[] errorCodes = ErrorCode.values();
+        AppUpdateInstallState[][] states = new AppUpdateInstallState[statuses.length][errorCodes.length];
+        for (Status status : statuses) {
+            for (ErrorCode errorCode : errorCodes) {
+                states[status.ordinal()][errorCode.ordinal()] =
+                        new AppUpdateInstallState(status, errorCode, BYTES_UNKNOWN, BYTES_UNKNOWN);
+            }
+        }
+        return states;
     }
 
     @NonNull
@@ -87,6 +154,21 @@ public class AppUpdateInstallState {
         return downloadProgress;
     }
 
+    /**
+     * @return the smoothed download throughput in bytes per second while downloading, or {@link #RATE_UNKNOWN}
+     */
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * @return the estimated time to finish the download in milliseconds while downloading, based on
+     * {@link #getBytesPerSecond()}, or {@link #TIME_REMAINING_UNKNOWN}
+     */
+    public long getEstimatedTimeRemainingMillis() {
+        return estimatedTimeRemainingMillis;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -95,13 +177,14 @@ public class AppUpdateInstallState {
         return bytesDownloaded == that.bytesDownloaded &&
                 totalBytesToDownload == that.totalBytesToDownload &&
                 Float.compare(that.downloadProgress, downloadProgress) == 0 &&
+                bytesPerSecond == that.bytesPerSecond &&
                 status == that.status &&
                 errorCode == that.errorCode;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(status, errorCode, bytesDownloaded, totalBytesToDownload, downloadProgress);
+        return Objects.hash(status, errorCode, bytesDownloaded, totalBytesToDownload, downloadProgress, bytesPerSecond);
     }
 
     @Override
@@ -112,6 +195,8 @@ public class AppUpdateInstallState {
                 ", bytesDownloaded=" + bytesDownloaded +
                 ", totalBytesToDownload=" + totalBytesToDownload +
                 ", downloadProgress=" + downloadProgress +
+                ", bytesPerSecond=" + bytesPerSecond +
+                ", estimatedTimeRemainingMillis=" + estimatedTimeRemainingMillis +
                 '}';
     }
 
@@ -148,8 +233,9 @@ public class AppUpdateInstallState {
         FAILED,
         CANCELED;
 
-        static Status from(@NonNull InstallState state) {
-            switch (state.installStatus()) {
+        @NonNull
+        static Status from(int installStatus) {
+            switch (installStatus) {
                 case InstallStatus.REQUIRES_UI_INTENT:
                     return Status.REQUIRES_UI_INTENT;
                 case InstallStatus.PENDING:
@@ -202,8 +288,9 @@ public class AppUpdateInstallState {
         ERROR_PLAY_STORE_NOT_FOUND,
         ERROR_INTERNAL_ERROR;
 
-        static ErrorCode from(InstallState state) {
-            switch (state.installErrorCode()) {
+        @NonNull
+        static ErrorCode from(int errorCode) {
+            switch (errorCode) {
                 case InstallErrorCode.NO_ERROR:
                     return ErrorCode.NO_ERROR;
                 case InstallErrorCode.ERROR_API_NOT_AVAILABLE:
@@ -223,14 +310,29 @@ public class AppUpdateInstallState {
                 case InstallErrorCode.ERROR_INTERNAL_ERROR:
                     return ErrorCode.ERROR_INTERNAL_ERROR;
                 case InstallErrorCode.ERROR_UNKNOWN:
-                    //noinspection deprecation
                 case InstallErrorCode.NO_ERROR_PARTIALLY_ALLOWED:
                 default:
                     return ErrorCode.ERROR_UNKNOWN;
             }
         }
 
-        @InstallErrorCode
+        /**
+         * Checks if the error won't go away by retrying the same request, for example because the device
+         * doesn't have the Play Store or the user didn't get the app from it.
+         */
+        boolean isPermanent() {
+            switch (this) {
+                case ERROR_API_NOT_AVAILABLE:
+                case ERROR_INVALID_REQUEST:
+                case ERROR_INSTALL_UNAVAILABLE:
+                case ERROR_APP_NOT_OWNED:
+                case ERROR_PLAY_STORE_NOT_FOUND:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
         int getValue() {
             switch (this) {
                 case NO_ERROR:
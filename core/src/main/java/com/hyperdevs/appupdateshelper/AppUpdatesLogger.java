@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Logger used by the library.
+ * <p>
+ * Messages are only built after {@link #isLoggable(int)} returns true for their level, so a logger that
+ * discards a level avoids any string building for it.
+ * <p>
+ * Set it with {@code AppUpdatesHelper.setLogger()}.
+ */
+public interface AppUpdatesLogger {
+    int VERBOSE = 2;
+    int DEBUG = 3;
+    int INFO = 4;
+    int WARN = 5;
+    int ERROR = 6;
+
+    /**
+     * Logger that discards every message.
+     */
+    AppUpdatesLogger NONE = new AppUpdatesLogger() {
+        @Override
+        public boolean isLoggable(int level) {
+            return false;
+        }
+
+        @Override
+        public void log(int level, @NonNull String tag, @NonNull String message, @Nullable Throwable throwable) {
+            // No-op
+        }
+    };
+
+    /**
+     * Checks if messages of a given level will be logged.
+     *
+     * @param level Level of the message, one of {@link #VERBOSE}, {@link #DEBUG}, {@link #INFO}, {@link #WARN}
+     *              or {@link #ERROR}.
+     */
+    boolean isLoggable(int level);
+
+    /**
+     * Logs a message. Only called if {@link #isLoggable(int)} returned true for the level.
+     *
+     * @param level     Level of the message
+     * @param tag       Tag of the message
+     * @param message   Message to log
+     * @param throwable Throwable attached to the message, if any
+     */
+    void log(int level, @NonNull String tag, @NonNull String message, @Nullable Throwable throwable);
+}
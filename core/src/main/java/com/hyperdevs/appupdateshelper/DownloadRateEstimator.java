@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Smoothed estimate of the download throughput, computed with an exponentially weighted moving average of the
+ * rate between consecutive progress updates.
+ * <p>
+ * The weight of each sample depends on the time since the previous one, so irregular update intervals don't bias
+ * the estimate. The estimate is reset whenever the download isn't in progress, for example when it's pending again
+ * or it failed.
+ */
+final class DownloadRateEstimator {
+    /**
+     * Time it takes for a sample to lose ~63% of its weight.
+     */
+    static final long SMOOTHING_TIME_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    private boolean hasSample = false;
+    private long lastBytesDownloaded = 0;
+    private long lastTotalBytesToDownload = 0;
+    private long lastSampleNanos = 0;
+    private double bytesPerSecond = AppUpdateInstallState.RATE_UNKNOWN;
+
+    /**
+     * Adds an install state to the estimate.
+     *
+     * @return The current estimate in bytes per second, or {@link AppUpdateInstallState#RATE_UNKNOWN} if there's
+     * no estimate yet.
+     */
+    synchronized long onInstallState(@NonNull AppUpdateInstallState.Status status,
+                                     long bytesDownloaded,
+                                     long totalBytesToDownload,
+                                     long nowNanos) {
+        if (status != AppUpdateInstallState.Status.DOWNLOADING) {
+            reset();
+            return AppUpdateInstallState.RATE_UNKNOWN;
+        }
+
+        if (!hasSample || bytesDownloaded < lastBytesDownloaded || totalBytesToDownload != lastTotalBytesToDownload) {
+            // First update of a new download
+            reset();
+            hasSample = true;
+            lastBytesDownloaded = bytesDownloaded;
+            lastTotalBytesToDownload = totalBytesToDownload;
+            lastSampleNanos = nowNanos;
+            return AppUpdateInstallState.RATE_UNKNOWN;
+        }
+
+        long elapsedNanos = nowNanos - lastSampleNanos;
+        // Repeated updates carry no new information, so they keep the current estimate
+        if (bytesDownloaded == lastBytesDownloaded || elapsedNanos <= 0) {
+            return getBytesPerSecond();
+        }
+
+        double sample = (bytesDownloaded - lastBytesDownloaded) * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+        if (bytesPerSecond < 0) {
+            bytesPerSecond = sample;
+        } else {
+            double alpha = 1 - Math.exp(-(double) elapsedNanos / SMOOTHING_TIME_NANOS);
+            bytesPerSecond += alpha * (sample - bytesPerSecond);
+        }
+        lastBytesDownloaded = bytesDownloaded;
+        lastSampleNanos = nowNanos;
+        return getBytesPerSecond();
+    }
+
+    synchronized void reset() {
+        hasSample = false;
+        bytesPerSecond = AppUpdateInstallState.RATE_UNKNOWN;
+    }
+
+    private long getBytesPerSecond() {
+        return bytesPerSecond < 0 ? AppUpdateInstallState.RATE_UNKNOWN : Math.round(bytesPerSecond);
+    }
+}
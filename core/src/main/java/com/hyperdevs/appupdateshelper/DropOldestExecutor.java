@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link Executor} that runs tasks one at a time on another executor, keeping at most a given number of
+ * droppable pending tasks. When the queue is full, the oldest droppable task is dropped to make room for the
+ * new one.
+ * <p>
+ * Tasks added with {@link #execute(Runnable)} are droppable. Tasks that must always run, like the ones
+ * carrying a final install state, are added with {@link #execute(Runnable, boolean)} and are never dropped,
+ * so the queue may go over its capacity while they are pending.
+ */
+final class DropOldestExecutor implements Executor {
+    private static final String TAG = "DropOldestExecutor";
+
+    private final Executor executor;
+    private final int capacity;
+    // Guarded by itself
+    private final ArrayDeque<Runnable> queue;
+    private boolean isDraining = false;
+
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            while (true) {
+                Runnable task;
+                synchronized (queue) {
+                    task = queue.poll();
+                    if (task == null) {
+                        isDraining = false;
+                        return;
+                    }
+                }
+                boolean hasCompleted = false;
+                try {
+                    task.run();
+                    hasCompleted = true;
+                } finally {
+                    if (!hasCompleted) {
+                        // Let the next execute() call start a new drain after a failed task
+                        synchronized (queue) {
+                            isDraining = false;
+                        }
+                    }
+                }
+            }
+        }
+    };
+
+    DropOldestExecutor(@NonNull Executor executor, int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("The capacity must be positive");
+
+        this.executor = executor;
+        this.capacity = capacity;
+        this.queue = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        execute(task, true);
+    }
+
+    /**
+     * Adds a task to the queue.
+     *
+     * @param task        Task to run.
+     * @param isDroppable Whether the task can be dropped when the queue is full. If it can't, it's always run.
+     */
+    void execute(@NonNull Runnable task, boolean isDroppable) {
+        synchronized (queue) {
+            if (queue.size() >= capacity && !dropOldestDroppableTask() && isDroppable) {
+                // Every pending task must run, so the new one is the only one that can be dropped
+                Logs.d(TAG, "Dropped the new task", null);
+                return;
+            }
+            queue.offer(isDroppable ? task : new RetainedTask(task));
+            if (isDraining) return;
+            isDraining = true;
+        }
+
+        boolean isScheduled = false;
+        try {
+            executor.execute(drainRunnable);
+            isScheduled = true;
+        } finally {
+            if (!isScheduled) {
+                // Let the next execute() call try to start the drain again
+                synchronized (queue) {
+                    isDraining = false;
+                }
+            }
+        }
+    }
+
+    // Guarded by queue
+    private boolean dropOldestDroppableTask() {
+        Iterator<Runnable> iterator = queue.iterator();
+        while (iterator.hasNext()) {
+            if (!(iterator.next() instanceof RetainedTask)) {
+                iterator.remove();
+                Logs.d(TAG, "Dropped the oldest pending task", null);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks a pending task that can't be dropped.
+     */
+    private static final class RetainedTask implements Runnable {
+        private final Runnable task;
+
+        RetainedTask(@NonNull Runnable task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Turns the stream of install states into the events of a {@link MetricsSink}.
+ * <p>
+ * The methods can be called from any thread and don't allocate. The sink is never called while holding the
+ * tracker's lock.
+ */
+final class InstallMetricsTracker {
+    private final MetricsSink sink;
+
+    private AppUpdateInstallState.Status lastStatus = null;
+    private boolean isFlowStarted = false;
+    private long flowStartNanos = 0;
+    private boolean isDownloading = false;
+    private boolean hasFirstByte = false;
+    private long downloadStartNanos = 0;
+
+    InstallMetricsTracker(@NonNull MetricsSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * Marks the start of an update flow, from which the status transitions are timed.
+     */
+    synchronized void onFlowStarted(long nowNanos) {
+        lastStatus = null;
+        isFlowStarted = true;
+        flowStartNanos = nowNanos;
+        isDownloading = false;
+    }
+
+    void onInstallState(@NonNull AppUpdateInstallState.Status status,
+                        @NonNull AppUpdateInstallState.ErrorCode errorCode,
+                        long bytesDownloaded,
+                        long totalBytesToDownload,
+                        long nowNanos) {
+        AppUpdateInstallState.Status from = null;
+        long sinceFlowStartNanos = 0;
+        long firstByteNanos = -1;
+        long downloadNanos = -1;
+        synchronized (this) {
+            if (!isFlowStarted) {
+                isFlowStarted = true;
+                flowStartNanos = nowNanos;
+            }
+
+            if (status != lastStatus) {
+                from = lastStatus != null ? lastStatus : AppUpdateInstallState.Status.UNKNOWN;
+                sinceFlowStartNanos = nowNanos - flowStartNanos;
+                lastStatus = status;
+            }
+
+            if (!isDownloading &&
+                    (status == AppUpdateInstallState.Status.PENDING || status == AppUpdateInstallState.Status.DOWNLOADING)) {
+                isDownloading = true;
+                hasFirstByte = false;
+                downloadStartNanos = nowNanos;
+            }
+
+            if (isDownloading) {
+                if (!hasFirstByte && bytesDownloaded > 0) {
+                    hasFirstByte = true;
+                    firstByteNanos = nowNanos - downloadStartNanos;
+                }
+                if (isDownloadFinished(status)) {
+                    isDownloading = false;
+                    downloadNanos = nowNanos - downloadStartNanos;
+                }
+            }
+
+            if (isFlowFinished(status)) {
+                // The next state belongs to a new flow
+                lastStatus = null;
+                isFlowStarted = false;
+                isDownloading = false;
+            }
+        }
+
+        if (from != null) {
+            sink.onStatusTransition(from, status, sinceFlowStartNanos);
+        }
+        if (firstByteNanos >= 0) {
+            sink.onDownloadFirstByte(firstByteNanos);
+        }
+        if (downloadNanos >= 0) {
+            sink.onDownloadFinished(totalBytesToDownload, downloadNanos);
+        }
+        if (errorCode != AppUpdateInstallState.ErrorCode.NO_ERROR || status == AppUpdateInstallState.Status.FAILED) {
+            sink.onInstallFailure(status, errorCode);
+        }
+    }
+
+    private static boolean isDownloadFinished(@NonNull AppUpdateInstallState.Status status) {
+        // Immediate updates may go straight to installing without reporting DOWNLOADED
+        return status == AppUpdateInstallState.Status.DOWNLOADED ||
+                status == AppUpdateInstallState.Status.INSTALLING ||
+                status == AppUpdateInstallState.Status.INSTALLED;
+    }
+
+    private static boolean isFlowFinished(@NonNull AppUpdateInstallState.Status status) {
+        return status == AppUpdateInstallState.Status.INSTALLED ||
+                status == AppUpdateInstallState.Status.FAILED ||
+                status == AppUpdateInstallState.Status.CANCELED ||
+                status == AppUpdateInstallState.Status.DENIED;
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Allocation-free alternative to {@link InstallStateListener}.
+ * <p>
+ * The install state is delivered as its individual values instead of an {@link AppUpdateInstallState}, so no
+ * object is created per event. Listeners of this type receive every install state update as soon as it's
+ * received, without applying any {@link InstallStateThrottle}.
+ */
+public interface InstallProgressListener {
+    /**
+     * Triggered on an app update installation event is emitted.
+     *
+     * @param status               Status of the installation
+     * @param errorCode            Error code of the installation
+     * @param bytesDownloaded      Downloaded bytes of the update
+     * @param totalBytesToDownload Total size of the update in bytes
+     */
+    void onInstallProgress(@NonNull AppUpdateInstallState.Status status,
+                           @NonNull AppUpdateInstallState.ErrorCode errorCode,
+                           long bytesDownloaded,
+                           long totalBytesToDownload);
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Delivers install state updates to the install state and progress listeners of a helper.
+ * <p>
+ * Progress listeners are notified without allocating (unless a delivery executor is set), and an
+ * {@link AppUpdateInstallState} is only built if there are install state listeners. These ones can be
+ * throttled with an {@link InstallStateThrottle}. Download states carry a throughput estimate from a
+ * {@link DownloadRateEstimator}, and every update is also reported to the {@link MetricsSink} and recorded in the
+ * {@link InstallStateJournal}, if any. Install state listeners only receive the states accepted by an
+ * {@link InstallStateMachine}, while progress listeners receive every update.
+ * <p>
+ * Listeners can be added, removed and notified from any thread.
+ */
+final class InstallStateDispatcher {
+    // Logged under the helper tag, as they were before the dispatcher was split from it
+    private static final String TAG = "AppUpdatesHelper";
+
+    private final ListenerSet<InstallStateListener> installStateListeners = new ListenerSet<>();
+    private final ListenerSet<InstallProgressListener> installProgressListeners = new ListenerSet<>();
+    private final DownloadRateEstimator downloadRateEstimator = new DownloadRateEstimator();
+    private final InstallStateMachine installStateMachine = new InstallStateMachine();
+    private final InstallStateListener throttledInstallStateListener = new InstallStateListener() {
+        @Override
+        public void onInstallStateUpdate(@NonNull AppUpdateInstallState state) {
+            dispatchInstallState(state);
+        }
+    };
+
+    private volatile Executor executor = null;
+    private volatile InstallStateThrottler throttler = null;
+    private volatile InstallMetricsTracker metricsTracker = null;
+    private volatile InstallStateJournal journal = null;
+
+    boolean addInstallStateListener(@NonNull InstallStateListener listener) {
+        return installStateListeners.add(listener);
+    }
+
+    boolean removeInstallStateListener(@NonNull InstallStateListener listener) {
+        boolean isRemoved = installStateListeners.remove(listener);
+        if (installStateListeners.isEmpty()) {
+            // The state isn't tracked without listeners, so the next ones must receive the next state
+            installStateMachine.reset();
+        }
+        return isRemoved;
+    }
+
+    boolean addInstallProgressListener(@NonNull InstallProgressListener listener) {
+        return installProgressListeners.add(listener);
+    }
+
+    boolean removeInstallProgressListener(@NonNull InstallProgressListener listener) {
+        return installProgressListeners.remove(listener);
+    }
+
+    /**
+     * Removes all the listeners and drops any throttled state.
+     */
+    void clear() {
+        installStateListeners.clear();
+        installProgressListeners.clear();
+        installStateMachine.reset();
+        reset();
+    }
+
+    /**
+     * Returns the last state accepted for the install state listeners, or {@link AppUpdateInstallState#unknown()}
+     * if none has been accepted since they were added.
+     * <p>
+     * When a throttle is set, the returned state may still be waiting in the throttler and not have reached
+     * the listeners yet.
+     */
+    @NonNull
+    AppUpdateInstallState getCurrentState() {
+        return installStateMachine.getCurrentState();
+    }
+
+    boolean hasListeners() {
+        return !installStateListeners.isEmpty() || !installProgressListeners.isEmpty();
+    }
+
+    /**
+     * Sets the executor used to call the listeners.
+     *
+     * @param executor Executor to use, or null to call them in the thread that dispatched the update.
+     */
+    void setExecutor(@Nullable Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Sets a policy to limit how often download progress updates are delivered to the install state listeners.
+     *
+     * @param throttle  Policy to use, or null to deliver every update.
+     * @param scheduler Scheduler used to deliver the delayed updates.
+     */
+    void setThrottle(@Nullable InstallStateThrottle throttle, @NonNull Scheduler scheduler) {
+        InstallStateThrottler previousThrottler = throttler;
+        throttler = throttle != null
+                ? new InstallStateThrottler(throttle, scheduler, throttledInstallStateListener)
+                : null;
+        if (previousThrottler != null) {
+            previousThrottler.reset();
+        }
+    }
+
+    /**
+     * Sets the sink that receives the install metrics.
+     *
+     * @param sink Sink to use, or null to disable the metrics.
+     */
+    void setMetricsSink(@Nullable MetricsSink sink) {
+        metricsTracker = sink != null ? new InstallMetricsTracker(sink) : null;
+    }
+
+    /**
+     * Sets the journal where every install state update is recorded.
+     *
+     * @param journal Journal to use, or null to stop recording the updates.
+     */
+    void setJournal(@Nullable InstallStateJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Marks the start of an update flow for the install metrics.
+     */
+    void onUpdateFlowStarted() {
+        InstallMetricsTracker tracker = metricsTracker;
+        if (tracker != null) {
+            tracker.onFlowStarted(System.nanoTime());
+        }
+    }
+
+    /**
+     * Drops any throttled state without delivering it and resets the throughput estimate.
+     */
+    void reset() {
+        downloadRateEstimator.reset();
+        InstallStateThrottler current = throttler;
+        if (current != null) {
+            current.reset();
+        }
+    }
+
+    /**
+     * Entry point of every install state update.
+     */
+    void dispatch(@NonNull final AppUpdateInstallState.Status status,
+                  @NonNull final AppUpdateInstallState.ErrorCode errorCode,
+                  final long bytesDownloaded,
+                  final long totalBytesToDownload) {
+        InstallMetricsTracker tracker = metricsTracker;
+        if (tracker != null) {
+            tracker.onInstallState(status, errorCode, bytesDownloaded, totalBytesToDownload, System.nanoTime());
+        }
+        InstallStateJournal currentJournal = journal;
+        if (currentJournal != null) {
+            currentJournal.append(status, errorCode, bytesDownloaded, totalBytesToDownload, System.currentTimeMillis());
+        }
+
+        if (!installProgressListeners.isEmpty()) {
+            Executor current = executor;
+            if (current == null) {
+                dispatchInstallProgress(status, errorCode, bytesDownloaded, totalBytesToDownload);
+            } else {
+                execute(current, new Runnable() {
+                    @Override
+                    public void run() {
+                        dispatchInstallProgress(status, errorCode, bytesDownloaded, totalBytesToDownload);
+                    }
+                }, status);
+            }
+        }
+
+        if (installStateListeners.isEmpty()) return;
+
+        long bytesPerSecond =
+                downloadRateEstimator.onInstallState(status, bytesDownloaded, totalBytesToDownload, System.nanoTime());
+        AppUpdateInstallState state =
+                AppUpdateInstallState.of(status, errorCode, bytesDownloaded, totalBytesToDownload, bytesPerSecond);
+        // Repeated and out of order states are dropped before they reach the listeners
+        if (!installStateMachine.onInstallState(state)) return;
+
+        InstallStateThrottler current = throttler;
+        if (current != null) {
+            current.onInstallState(state);
+        } else {
+            dispatchInstallState(state);
+        }
+    }
+
+    private void dispatchInstallProgress(@NonNull AppUpdateInstallState.Status status,
+                                         @NonNull AppUpdateInstallState.ErrorCode errorCode,
+                                         long bytesDownloaded,
+                                         long totalBytesToDownload) {
+        Object[] listeners = installProgressListeners.getListeners();
+        for (int i = 0; i < listeners.length; i++) {
+            ((InstallProgressListener) listeners[i])
+                    .onInstallProgress(status, errorCode, bytesDownloaded, totalBytesToDownload);
+        }
+    }
+
+    private void dispatchInstallState(@NonNull final AppUpdateInstallState state) {
+        Logs.d(TAG, "Update status result: ", state);
+
+        Executor current = executor;
+        if (current == null) {
+            deliverInstallState(state);
+        } else {
+            execute(current, new Runnable() {
+                @Override
+                public void run() {
+                    deliverInstallState(state);
+                }
+            }, state.getStatus());
+        }
+    }
+
+    /**
+     * Runs a delivery task. Only download progress can be dropped by a bounded executor, so the listeners
+     * always receive the other states, like the final ones.
+     */
+    private static void execute(@NonNull Executor executor,
+                                @NonNull Runnable task,
+                                @NonNull AppUpdateInstallState.Status status) {
+        if (executor instanceof DropOldestExecutor) {
+            ((DropOldestExecutor) executor).execute(task, status == AppUpdateInstallState.Status.DOWNLOADING);
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    private void deliverInstallState(@NonNull AppUpdateInstallState state) {
+        Object[] listeners = installStateListeners.getListeners();
+        for (int i = 0; i < listeners.length; i++) {
+            ((InstallStateListener) listeners[i]).onInstallStateUpdate(state);
+        }
+    }
+}
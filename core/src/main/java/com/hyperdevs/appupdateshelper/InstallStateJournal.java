@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Fixed-size, append-only journal of install states, kept in a memory-mapped file so it survives process death
+ * and can be exported after a failed update.
+ * <p>
+ * Each state is stored as a compact binary record with its timestamp, status, error code and bytes. Once the
+ * journal is full, new records overwrite the oldest ones. Appending writes directly to the mapped memory, so it
+ * doesn't allocate or make any system call; the operating system flushes the pages to the file, even if the
+ * process is killed.
+ * <p>
+ * Enable it with {@code AppUpdatesHelper.setInstallStateJournal()}. The methods can be called from any thread.
+ */
+public final class InstallStateJournal implements Closeable {
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private static final int MAGIC = 0x41554a31; // "AUJ1"
+    private static final int VERSION = 1;
+
+    // Header: magic, version, capacity, record size and next sequence number
+    private static final int HEADER_SIZE = 32;
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_CAPACITY = 8;
+    private static final int HEADER_RECORD_SIZE = 12;
+    private static final int HEADER_NEXT_SEQUENCE = 16;
+
+    // Record: sequence number, timestamp, bytes downloaded, total bytes, status and error code
+    private static final int RECORD_SIZE = 40;
+    private static final int RECORD_SEQUENCE = 0;
+    private static final int RECORD_TIMESTAMP = 8;
+    private static final int RECORD_BYTES_DOWNLOADED = 16;
+    private static final int RECORD_TOTAL_BYTES = 24;
+    private static final int RECORD_STATUS = 32;
+    private static final int RECORD_ERROR_CODE = 33;
+
+    private static final AppUpdateInstallState.Status[] STATUSES = AppUpdateInstallState.Status.values();
+    private static final AppUpdateInstallState.ErrorCode[] ERROR_CODES = AppUpdateInstallState.ErrorCode.values();
+
+    private final int capacity;
+    private final RandomAccessFile file;
+    private final MappedByteBuffer buffer;
+    private long nextSequence;
+    private boolean isClosed = false;
+
+    /**
+     * Opens a journal with the {@link #DEFAULT_CAPACITY default capacity}.
+     *
+     * @param file File that stores the journal, for example in the no-backup files directory of the app.
+     */
+    public InstallStateJournal(@NonNull File file) throws IOException {
+        this(file, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Opens a journal, keeping the records of a previous journal stored in the same file if it has the same
+     * capacity. Otherwise, the file is cleared.
+     *
+     * @param file     File that stores the journal, for example in the no-backup files directory of the app.
+     * @param capacity Maximum number of records kept.
+     */
+    public InstallStateJournal(@NonNull File file, int capacity) throws IOException {
+        if (capacity <= 0 || capacity > (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE)
+            throw new IllegalArgumentException("The journal capacity must be positive and fit in a single mapped file");
+
+        this.capacity = capacity;
+        this.file = new RandomAccessFile(file, "rw");
+        try {
+            long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+            this.file.setLength(size);
+            this.buffer = this.file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        if (buffer.getInt(HEADER_MAGIC) == MAGIC &&
+                buffer.getInt(HEADER_VERSION) == VERSION &&
+                buffer.getInt(HEADER_CAPACITY) == capacity &&
+                buffer.getInt(HEADER_RECORD_SIZE) == RECORD_SIZE) {
+            nextSequence = buffer.getLong(HEADER_NEXT_SEQUENCE);
+        } else {
+            clearLocked();
+        }
+    }
+
+    /**
+     * Appends an install state to the journal.
+     *
+     * @param timestampMillis Wall clock time of the state, in milliseconds since the epoch.
+     */
+    public synchronized void append(@NonNull AppUpdateInstallState.Status status,
+                                    @NonNull AppUpdateInstallState.ErrorCode errorCode,
+                                    long bytesDownloaded,
+                                    long totalBytesToDownload,
+                                    long timestampMillis) {
+        if (isClosed) return;
+
+        long sequence = nextSequence;
+        int offset = getRecordOffset(sequence);
+        buffer.putLong(offset + RECORD_TIMESTAMP, timestampMillis);
+        buffer.putLong(offset + RECORD_BYTES_DOWNLOADED, bytesDownloaded);
+        buffer.putLong(offset + RECORD_TOTAL_BYTES, totalBytesToDownload);
+        buffer.put(offset + RECORD_STATUS, (byte) status.ordinal());
+        buffer.put(offset + RECORD_ERROR_CODE, (byte) errorCode.ordinal());
+        // The sequence number is written last, so a record interrupted by a process death is never read
+        buffer.putLong(offset + RECORD_SEQUENCE, sequence + 1);
+
+        nextSequence = sequence + 1;
+        buffer.putLong(HEADER_NEXT_SEQUENCE, nextSequence);
+    }
+
+    /**
+     * Returns the stored records, from the oldest to the newest.
+     */
+    @NonNull
+    public synchronized List<Entry> getEntries() {
+        if (isClosed) return new ArrayList<>();
+
+        long firstSequence = Math.max(0, nextSequence - capacity);
+        List<Entry> entries = new ArrayList<>((int) (nextSequence - firstSequence));
+        for (long sequence = firstSequence; sequence < nextSequence; sequence++) {
+            int offset = getRecordOffset(sequence);
+            if (buffer.getLong(offset + RECORD_SEQUENCE) != sequence + 1) continue;
+
+            int status = buffer.get(offset + RECORD_STATUS);
+            int errorCode = buffer.get(offset + RECORD_ERROR_CODE);
+            if (status < 0 || status >= STATUSES.length || errorCode < 0 || errorCode >= ERROR_CODES.length) continue;
+
+            entries.add(new Entry(
+                    buffer.getLong(offset + RECORD_TIMESTAMP),
+                    AppUpdateInstallState.of(STATUSES[status], ERROR_CODES[errorCode],
+                            buffer.getLong(offset + RECORD_BYTES_DOWNLOADED),
+                            buffer.getLong(offset + RECORD_TOTAL_BYTES))));
+        }
+        return entries;
+    }
+
+    /**
+     * Writes the stored records as text, one per line from the oldest to the newest, with the format
+     * {@code timestampMillis,status,errorCode,bytesDownloaded,totalBytesToDownload}.
+     *
+     * @param writer Writer to export the records to. It isn't closed.
+     */
+    public void export(@NonNull Writer writer) throws IOException {
+        for (Entry entry : getEntries()) {
+            AppUpdateInstallState state = entry.getState();
+            writer.write(entry.getTimestampMillis() + "," +
+                    state.getStatus() + "," +
+                    state.getErrorCode() + "," +
+                    state.getBytesDownloaded() + "," +
+                    state.getTotalBytesToDownload() + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * Removes all the stored records.
+     */
+    public synchronized void clear() {
+        if (isClosed) return;
+        clearLocked();
+    }
+
+    /**
+     * Closes the journal file. Any later append is ignored.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (isClosed) return;
+        isClosed = true;
+        buffer.force();
+        file.close();
+    }
+
+    private void clearLocked() {
+        for (int i = 0; i < buffer.capacity(); i += 8) {
+            buffer.putLong(i, 0);
+        }
+        buffer.putInt(HEADER_MAGIC, MAGIC);
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putInt(HEADER_CAPACITY, capacity);
+        buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+        nextSequence = 0;
+        buffer.putLong(HEADER_NEXT_SEQUENCE, nextSequence);
+    }
+
+    private int getRecordOffset(long sequence) {
+        return HEADER_SIZE + (int) (sequence % capacity) * RECORD_SIZE;
+    }
+
+    /**
+     * Record of the journal.
+     */
+    public static final class Entry {
+        private final long timestampMillis;
+        @NonNull
+        private final AppUpdateInstallState state;
+
+        Entry(long timestampMillis, @NonNull AppUpdateInstallState state) {
+            this.timestampMillis = timestampMillis;
+            this.state = state;
+        }
+
+        /**
+         * @return the wall clock time of the state, in milliseconds since the epoch
+         */
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        @NonNull
+        public AppUpdateInstallState getState() {
+            return state;
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{" +
+                    "timestampMillis=" + timestampMillis +
+                    ", state=" + state +
+                    '}';
+        }
+    }
+}
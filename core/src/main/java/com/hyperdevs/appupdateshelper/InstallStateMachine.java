@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.CANCELED;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.DENIED;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.DOWNLOADED;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.DOWNLOADING;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.FAILED;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.INSTALLED;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.INSTALLING;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.PENDING;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.REQUIRES_UI_INTENT;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.UNKNOWN;
+import static com.hyperdevs.appupdateshelper.AppUpdateInstallState.Status.UPDATE_ACCEPTED;
+
+/**
+ * Keeps the current install state of a helper and filters the states that don't change it meaningfully.
+ * <p>
+ * The Play Core listener and {@code AppUpdatesHelper.onUpdateStatusResult()} report states independently, so
+ * the same state may be received several times and states may arrive out of order. A state is dropped if it's
+ * equal to the current one, or if its status can't follow the current status according to the transition
+ * table, which is logged as an illegal transition. Statuses that end a flow (denied, failed, canceled or
+ * installed) are never dropped for being unexpected: they are logged and delivered, so listeners always
+ * know how the flow ended.
+ * <p>
+ * Any status can follow a status that isn't part of an ongoing update (unknown, requiring a UI intent, denied,
+ * failed, canceled or installed), so a new or resumed flow is never dropped.
+ */
+final class InstallStateMachine {
+    private static final String TAG = "InstallStateMachine";
+
+    private static final boolean[][] TRANSITIONS = createTransitions();
+
+    // Null until the first state is received, so that state is always accepted
+    @Nullable
+    private AppUpdateInstallState currentState = null;
+
+    /**
+     * Moves to a new state if it's a meaningful change.
+     *
+     * @return true if the state is now the current one and should be delivered to the listeners
+     */
+    boolean onInstallState(@NonNull AppUpdateInstallState state) {
+        AppUpdateInstallState.Status from;
+        synchronized (this) {
+            if (currentState == null) {
+                currentState = state;
+                return true;
+            }
+            if (state.equals(currentState)) return false;
+
+            from = currentState.getStatus();
+            if (isLegalTransition(from, state.getStatus())) {
+                currentState = state;
+                return true;
+            }
+            if (isFinal(state.getStatus())) {
+                currentState = state;
+            }
+        }
+
+        if (isFinal(state.getStatus())) {
+            Logs.w(TAG, "Delivering unexpected install state transition from ", from, " to: ", state);
+            return true;
+        }
+        Logs.w(TAG, "Dropping illegal install state transition from ", from, " to: ", state);
+        return false;
+    }
+
+    /**
+     * Returns the current state, or {@link AppUpdateInstallState#unknown()} if no state has been received.
+     */
+    @NonNull
+    synchronized AppUpdateInstallState getCurrentState() {
+        return currentState != null ? currentState : AppUpdateInstallState.unknown();
+    }
+
+    /**
+     * Forgets the current state, so the next state is always accepted.
+     */
+    synchronized void reset() {
+        currentState = null;
+    }
+
+    static boolean isLegalTransition(@NonNull AppUpdateInstallState.Status from, @NonNull AppUpdateInstallState.Status to) {
+        return TRANSITIONS[from.ordinal()][to.ordinal()];
+    }
+
+    private static boolean isFinal(@NonNull AppUpdateInstallState.Status status) {
+        return status == DENIED || status == FAILED || status == CANCELED || status == INSTALLED;
+    }
+
+    private static boolean[][] createTransitions() {
+        AppUpdateInstallState.Status[] statuses = AppUpdateInstallState.Status.values();
+        boolean[][] transitions = new boolean[statuses.length][statuses.length];
+
+        // States outside of an ongoing update can be followed by any other one
+        allow(transitions, UNKNOWN, statuses);
+        allow(transitions, REQUIRES_UI_INTENT, statuses);
+        allow(transitions, DENIED, statuses);
+        allow(transitions, FAILED, statuses);
+        allow(transitions, CANCELED, statuses);
+        allow(transitions, INSTALLED, statuses);
+
+        // Ongoing updates only move forward, except for downloads that are paused and become pending again
+        allow(transitions, UPDATE_ACCEPTED, PENDING, DOWNLOADING, DOWNLOADED, INSTALLING, INSTALLED);
+        allow(transitions, PENDING, PENDING, DOWNLOADING, DOWNLOADED, INSTALLING, INSTALLED);
+        allow(transitions, DOWNLOADING, PENDING, DOWNLOADING, DOWNLOADED, INSTALLING, INSTALLED);
+        allow(transitions, DOWNLOADED, DOWNLOADED, INSTALLING, INSTALLED);
+        allow(transitions, INSTALLING, INSTALLING, INSTALLED);
+
+        // An ongoing update can always fail, be canceled, be denied by the user or require user action
+        for (AppUpdateInstallState.Status from : statuses) {
+            allow(transitions, from, FAILED, CANCELED, DENIED, REQUIRES_UI_INTENT);
+        }
+        return transitions;
+    }
+
+    private static void allow(@NonNull boolean[][] transitions,
+                              @NonNull AppUpdateInstallState.Status from,
+                              @NonNull AppUpdateInstallState.Status... to) {
+        for (AppUpdateInstallState.Status status : to) {
+            transitions[from.ordinal()][status.ordinal()] = true;
+        }
+    }
+}
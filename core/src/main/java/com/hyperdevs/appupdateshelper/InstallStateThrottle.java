@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy used to limit how often {@link AppUpdateInstallState.Status#DOWNLOADING DOWNLOADING} states are
+ * delivered to the listeners of an {@code AppUpdatesHelper}.
+ * <p>
+ * Progress updates that arrive too close to the previous one are conflated: only the latest one is kept and
+ * it's delivered once the policy allows it. Any other state is always delivered immediately, discarding any
+ * progress update that was waiting to be delivered.
+ */
+public final class InstallStateThrottle {
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = 250;
+    public static final float DEFAULT_MIN_PROGRESS_DELTA = 1f;
+
+    private final long minIntervalMillis;
+    private final float minProgressDelta;
+
+    /**
+     * Creates a throttle policy with the default values.
+     */
+    public InstallStateThrottle() {
+        this(DEFAULT_MIN_INTERVAL_MILLIS, DEFAULT_MIN_PROGRESS_DELTA);
+    }
+
+    /**
+     * Creates a throttle policy.
+     *
+     * @param minIntervalMillis Minimum time between two delivered progress updates, in milliseconds.
+     * @param minProgressDelta  Minimum change in {@link AppUpdateInstallState#getDownloadProgress()} between two
+     *                          delivered progress updates, in percentage points.
+     */
+    public InstallStateThrottle(long minIntervalMillis, float minProgressDelta) {
+        if (minIntervalMillis < 0)
+            throw new IllegalArgumentException("The minimum interval must not be negative");
+        if (minProgressDelta < 0)
+            throw new IllegalArgumentException("The minimum progress delta must not be negative");
+
+        this.minIntervalMillis = minIntervalMillis;
+        this.minProgressDelta = minProgressDelta;
+    }
+
+    /**
+     * Creates a throttle policy from a maximum emission rate.
+     *
+     * @param maxUpdatesPerSecond Maximum number of progress updates delivered per second.
+     * @param minProgressDelta    Minimum change in {@link AppUpdateInstallState#getDownloadProgress()} between two
+     *                            delivered progress updates, in percentage points.
+     */
+    public static InstallStateThrottle withMaxRate(int maxUpdatesPerSecond, float minProgressDelta) {
+        if (maxUpdatesPerSecond <= 0)
+            throw new IllegalArgumentException("The maximum rate must be positive");
+
+        return new InstallStateThrottle(TimeUnit.SECONDS.toMillis(1) / maxUpdatesPerSecond, minProgressDelta);
+    }
+
+    public long getMinIntervalMillis() {
+        return minIntervalMillis;
+    }
+
+    public float getMinProgressDelta() {
+        return minProgressDelta;
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Applies an {@link InstallStateThrottle} to a stream of install states.
+ * <p>
+ * The methods can be called from any thread. Delayed states are delivered from the thread of the given
+ * {@link Scheduler}. The downstream listener is called while holding an emission lock, so states emitted from
+ * different threads reach it in the order they were accepted, but never while holding the lock of the throttler
+ * state, so {@link #reset()} doesn't wait for it.
+ */
+final class InstallStateThrottler {
+    private final InstallStateThrottle throttle;
+    private final Scheduler scheduler;
+    private final InstallStateListener downstream;
+    // Taken before the throttler's lock by the emitting threads, so a delayed progress update that was accepted
+    // before a final state can't reach the downstream listener after it
+    private final Object emissionLock = new Object();
+
+    private final Runnable flushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (emissionLock) {
+                AppUpdateInstallState stateToEmit = null;
+                synchronized (InstallStateThrottler.this) {
+                    isFlushScheduled = false;
+                    AppUpdateInstallState state = pendingState;
+                    if (state != null && hasEnoughProgress(state)) {
+                        stateToEmit = markEmitted(state, scheduler.uptimeMillis());
+                    }
+                }
+                if (stateToEmit != null) {
+                    downstream.onInstallStateUpdate(stateToEmit);
+                }
+            }
+        }
+    };
+
+    private AppUpdateInstallState lastEmittedState = null;
+    private long lastEmittedAtMillis = 0;
+    private AppUpdateInstallState pendingState = null;
+    private boolean isFlushScheduled = false;
+
+    InstallStateThrottler(@NonNull InstallStateThrottle throttle,
+                          @NonNull Scheduler scheduler,
+                          @NonNull InstallStateListener downstream) {
+        this.throttle = throttle;
+        this.scheduler = scheduler;
+        this.downstream = downstream;
+    }
+
+    void onInstallState(@NonNull AppUpdateInstallState state) {
+        synchronized (emissionLock) {
+            AppUpdateInstallState stateToEmit = null;
+            synchronized (this) {
+                long now = scheduler.uptimeMillis();
+
+                if (state.getStatus() != AppUpdateInstallState.Status.DOWNLOADING ||
+                        lastEmittedState == null ||
+                        lastEmittedState.getStatus() != AppUpdateInstallState.Status.DOWNLOADING) {
+                    // Non-progress states and the first progress update are never delayed
+                    cancelFlush();
+                    stateToEmit = markEmitted(state, now);
+                } else {
+                    pendingState = state;
+                    if (hasEnoughProgress(state)) {
+                        long nextEmissionAtMillis = lastEmittedAtMillis + throttle.getMinIntervalMillis();
+                        if (now >= nextEmissionAtMillis) {
+                            cancelFlush();
+                            stateToEmit = markEmitted(state, now);
+                        } else if (!isFlushScheduled) {
+                            isFlushScheduled = true;
+                            scheduler.postAtTime(flushRunnable, nextEmissionAtMillis);
+                        }
+                    }
+                }
+            }
+
+            if (stateToEmit != null) {
+                downstream.onInstallStateUpdate(stateToEmit);
+            }
+        }
+    }
+
+    /**
+     * Drops any pending state without delivering it.
+     */
+    synchronized void reset() {
+        cancelFlush();
+        lastEmittedState = null;
+    }
+
+    private boolean hasEnoughProgress(@NonNull AppUpdateInstallState state) {
+        if (state.getTotalBytesToDownload() <= AppUpdateInstallState.BYTES_UNKNOWN) {
+            // Without a known total there's no progress percentage, so only skip exact repetitions
+            return state.getBytesDownloaded() != lastEmittedState.getBytesDownloaded();
+        }
+        return Math.abs(state.getDownloadProgress() - lastEmittedState.getDownloadProgress())
+                >= throttle.getMinProgressDelta();
+    }
+
+    private AppUpdateInstallState markEmitted(@NonNull AppUpdateInstallState state, long now) {
+        pendingState = null;
+        lastEmittedState = state;
+        lastEmittedAtMillis = now;
+        return state;
+    }
+
+    private void cancelFlush() {
+        pendingState = null;
+        if (isFlushScheduled) {
+            isFlushScheduled = false;
+            scheduler.removeCallbacks(flushRunnable);
+        }
+    }
+}
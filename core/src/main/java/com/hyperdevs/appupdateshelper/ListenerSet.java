@@ -0,0 +1,96 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import java.util.Arrays;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Copy-on-write set of listeners.
+ * <p>
+ * Adding or removing a listener copies the backing array, so dispatching events only needs to read
+ * {@link #getListeners()} and iterate it by index, without locking or allocating.
+ *
+ * @param <T> Type of the listeners
+ */
+final class ListenerSet<T> {
+    private static final Object[] EMPTY = new Object[0];
+
+    private volatile Object[] listeners = EMPTY;
+
+    /**
+     * Adds a listener if it's not already present.
+     *
+     * @return true if the listener was added
+     */
+    synchronized boolean add(@NonNull T listener) {
+        Object[] current = listeners;
+        for (Object existing : current) {
+            if (existing == listener) return false;
+        }
+
+        Object[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+        return true;
+    }
+
+    /**
+     * Removes a listener if it's present.
+     *
+     * @return true if the listener was removed
+     */
+    synchronized boolean remove(@NonNull T listener) {
+        Object[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                if (current.length == 1) {
+                    listeners = EMPTY;
+                } else {
+                    Object[] updated = new Object[current.length - 1];
+                    System.arraycopy(current, 0, updated, 0, i);
+                    System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                    listeners = updated;
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes all the listeners.
+     */
+    synchronized void clear() {
+        listeners = EMPTY;
+    }
+
+    boolean isEmpty() {
+        return listeners.length == 0;
+    }
+
+    /**
+     * Returns an immutable snapshot of the current listeners. Elements are of type {@code T}.
+     */
+    @NonNull
+    Object[] getListeners() {
+        return listeners;
+    }
+}
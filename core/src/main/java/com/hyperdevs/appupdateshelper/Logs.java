@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Entry point of the library's logging, backed by the configured {@link AppUpdatesLogger}.
+ * <p>
+ * Messages are only concatenated when the logger accepts their level. Numeric arguments have their own
+ * {@code long} overloads so they aren't boxed when the level is discarded.
+ */
+final class Logs {
+    private static volatile AppUpdatesLogger logger = AppUpdatesLogger.NONE;
+    private static volatile boolean isLoggerSet = false;
+
+    private Logs() {
+    }
+
+    static void setLogger(@NonNull AppUpdatesLogger logger) {
+        Logs.logger = logger;
+        isLoggerSet = true;
+    }
+
+    /**
+     * Sets the logger used when no logger has been set explicitly.
+     */
+    static void setDefaultLogger(@NonNull AppUpdatesLogger defaultLogger) {
+        if (isLoggerSet) return;
+        logger = defaultLogger;
+    }
+
+    static void d(@NonNull String tag, @NonNull String message, @Nullable Object argument) {
+        log(AppUpdatesLogger.DEBUG, tag, message, argument, null);
+    }
+
+    static void d(@NonNull String tag, @NonNull String message, long argument) {
+        log(AppUpdatesLogger.DEBUG, tag, message, argument);
+    }
+
+    static void w(@NonNull String tag, @NonNull String message, @Nullable Object argument) {
+        log(AppUpdatesLogger.WARN, tag, message, argument, null);
+    }
+
+    static void w(@NonNull String tag, @NonNull String message, long argument) {
+        log(AppUpdatesLogger.WARN, tag, message, argument);
+    }
+
+    /**
+     * Logs a warning built as {@code message + first + separator + second}.
+     */
+    static void w(@NonNull String tag,
+                  @NonNull String message,
+                  @Nullable Object first,
+                  @NonNull String separator,
+                  @Nullable Object second) {
+        AppUpdatesLogger current = logger;
+        if (current.isLoggable(AppUpdatesLogger.WARN)) {
+            current.log(AppUpdatesLogger.WARN, tag, message + first + separator + second, null);
+        }
+    }
+
+    static void e(@NonNull String tag, @NonNull String message, @Nullable Throwable throwable) {
+        log(AppUpdatesLogger.ERROR, tag, message, null, throwable);
+    }
+
+    private static void log(int level,
+                            @NonNull String tag,
+                            @NonNull String message,
+                            @Nullable Object argument,
+                            @Nullable Throwable throwable) {
+        AppUpdatesLogger current = logger;
+        if (current.isLoggable(level)) {
+            current.log(level, tag, argument != null ? message + argument : message, throwable);
+        }
+    }
+
+    private static void log(int level, @NonNull String tag, @NonNull String message, long argument) {
+        AppUpdatesLogger current = logger;
+        if (current.isLoggable(level)) {
+            current.log(level, tag, message + argument, null);
+        }
+    }
+}
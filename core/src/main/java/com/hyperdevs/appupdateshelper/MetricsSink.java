@@ -0,0 +1,79 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Receives timings and outcomes of the update checks and update flows of an {@code AppUpdatesHelper}.
+ * <p>
+ * Durations are measured with a monotonic clock ({@link System#nanoTime()}) and reported in nanoseconds, so they
+ * can be fed directly into latency histograms. The library doesn't allocate to report them, and the methods are
+ * called in the thread that received the event, so they should return quickly.
+ * <p>
+ * Set it with {@code AppUpdatesHelper.setMetricsSink()}. Metrics are disabled by default.
+ */
+public interface MetricsSink {
+    /**
+     * Called when an update info request finishes, including any retries.
+     *
+     * @param isSuccessful  Whether the request succeeded.
+     * @param errorCode     Error code of the failure, or {@link AppUpdateInstallState.ErrorCode#NO_ERROR} if the
+     *                      request succeeded.
+     * @param durationNanos Time since the request started.
+     */
+    void onUpdateInfoRequest(boolean isSuccessful, @NonNull AppUpdateInstallState.ErrorCode errorCode, long durationNanos);
+
+    /**
+     * Called when the install status changes.
+     *
+     * @param from                Previous status, or {@link AppUpdateInstallState.Status#UNKNOWN} for the first
+     *                            status of a flow.
+     * @param to                  New status.
+     * @param sinceFlowStartNanos Time since the update flow was started, or since its first status if it wasn't
+     *                            started by this helper (for example, a download resumed after a restart).
+     */
+    void onStatusTransition(@NonNull AppUpdateInstallState.Status from,
+                            @NonNull AppUpdateInstallState.Status to,
+                            long sinceFlowStartNanos);
+
+    /**
+     * Called when the first downloaded bytes are reported.
+     *
+     * @param sinceDownloadStartNanos Time since the download became pending or started downloading.
+     */
+    void onDownloadFirstByte(long sinceDownloadStartNanos);
+
+    /**
+     * Called when the download finishes.
+     *
+     * @param totalBytes    Size of the download, or 0 if unknown.
+     * @param durationNanos Time since the download became pending or started downloading.
+     */
+    void onDownloadFinished(long totalBytes, long durationNanos);
+
+    /**
+     * Called for every install state that reports an error, or a {@link AppUpdateInstallState.Status#FAILED FAILED}
+     * status.
+     *
+     * @param status    Status of the install state.
+     * @param errorCode Error code of the install state.
+     */
+    void onInstallFailure(@NonNull AppUpdateInstallState.Status status, @NonNull AppUpdateInstallState.ErrorCode errorCode);
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+/**
+ * Values of the Play Core in-app updates API constants used by the mapping tables.
+ * <p>
+ * They are copied here so this module doesn't depend on the Android library. The Android module checks
+ * in its tests that they still match the Play Core ones.
+ */
+final class PlayCoreValues {
+    private PlayCoreValues() {
+    }
+
+    /**
+     * Mirror of {@code com.google.android.play.core.install.model.InstallStatus}.
+     */
+    static final class InstallStatus {
+        static final int UNKNOWN = 0;
+        static final int PENDING = 1;
+        static final int DOWNLOADING = 2;
+        static final int INSTALLING = 3;
+        static final int INSTALLED = 4;
+        static final int FAILED = 5;
+        static final int CANCELED = 6;
+        static final int REQUIRES_UI_INTENT = 10;
+        static final int DOWNLOADED = 11;
+
+        private InstallStatus() {
+        }
+    }
+
+    /**
+     * Mirror of {@code com.google.android.play.core.install.model.InstallErrorCode}.
+     */
+    static final class InstallErrorCode {
+        static final int NO_ERROR = 0;
+        static final int NO_ERROR_PARTIALLY_ALLOWED = 1;
+        static final int ERROR_UNKNOWN = -2;
+        static final int ERROR_API_NOT_AVAILABLE = -3;
+        static final int ERROR_INVALID_REQUEST = -4;
+        static final int ERROR_INSTALL_UNAVAILABLE = -5;
+        static final int ERROR_INSTALL_NOT_ALLOWED = -6;
+        static final int ERROR_DOWNLOAD_NOT_PRESENT = -7;
+        static final int ERROR_PLAY_STORE_NOT_FOUND = -9;
+        static final int ERROR_APP_NOT_OWNED = -10;
+        static final int ERROR_INTERNAL_ERROR = -100;
+
+        private InstallErrorCode() {
+        }
+    }
+
+    /**
+     * Mirror of {@code com.google.android.play.core.install.model.UpdateAvailability}.
+     */
+    static final class UpdateAvailability {
+        static final int UNKNOWN = 0;
+        static final int UPDATE_NOT_AVAILABLE = 1;
+        static final int UPDATE_AVAILABLE = 2;
+        static final int DEVELOPER_TRIGGERED_UPDATE_IN_PROGRESS = 3;
+
+        private UpdateAvailability() {
+        }
+    }
+}
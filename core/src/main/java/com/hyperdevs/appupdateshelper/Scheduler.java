@@ -0,0 +1,42 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Posts delayed work for the platform-independent parts of the library. Times are in milliseconds
+ * of a monotonic clock that doesn't count deep sleep, like {@code SystemClock.uptimeMillis()}.
+ */
+interface Scheduler {
+    /**
+     * Returns the current time of the clock used by {@link #postAtTime(Runnable, long)}.
+     */
+    long uptimeMillis();
+
+    /**
+     * Runs a task once the clock reaches the given time.
+     */
+    void postAtTime(@NonNull Runnable task, long uptimeMillis);
+
+    /**
+     * Removes any pending post of the given task.
+     */
+    void removeCallbacks(@NonNull Runnable task);
+}
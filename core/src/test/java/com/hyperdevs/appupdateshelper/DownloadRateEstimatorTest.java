@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the throughput estimate and the time remaining derived from it.
+ */
+public class DownloadRateEstimatorTest {
+    private static final long TOTAL_BYTES = 10_000_000;
+    private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+    private final DownloadRateEstimator estimator = new DownloadRateEstimator();
+
+    @Test
+    public void first_update_has_no_estimate() {
+        assertEquals(AppUpdateInstallState.RATE_UNKNOWN, downloading(0, 0));
+    }
+
+    @Test
+    public void constant_rate_is_estimated_exactly() {
+        long rate = 0;
+        for (int i = 0; i <= 10; i++) {
+            // 100 KB every half second
+            rate = downloading(i * 100_000L, i * STEP_NANOS);
+        }
+
+        assertEquals(200_000, rate);
+    }
+
+    @Test
+    public void rate_changes_are_smoothed() {
+        downloading(0, 0);
+        downloading(100_000, STEP_NANOS);
+        long rate = downloading(400_000, 2 * STEP_NANOS);
+
+        // Between the old rate (200 KB/s) and the new one (600 KB/s)
+        assertTrue(rate > 200_000 && rate < 600_000);
+    }
+
+    @Test
+    public void repeated_updates_keep_the_estimate() {
+        downloading(0, 0);
+        long rate = downloading(100_000, STEP_NANOS);
+
+        assertEquals(rate, downloading(100_000, 2 * STEP_NANOS));
+    }
+
+    @Test
+    public void estimate_is_reset_when_pending_or_failed() {
+        downloading(0, 0);
+        downloading(100_000, STEP_NANOS);
+
+        assertEquals(AppUpdateInstallState.RATE_UNKNOWN,
+                estimator.onInstallState(AppUpdateInstallState.Status.PENDING, 100_000, TOTAL_BYTES, 2 * STEP_NANOS));
+        assertEquals(AppUpdateInstallState.RATE_UNKNOWN, downloading(100_000, 3 * STEP_NANOS));
+
+        downloading(200_000, 4 * STEP_NANOS);
+        assertEquals(AppUpdateInstallState.RATE_UNKNOWN,
+                estimator.onInstallState(AppUpdateInstallState.Status.FAILED, 200_000, TOTAL_BYTES, 5 * STEP_NANOS));
+        assertEquals(AppUpdateInstallState.RATE_UNKNOWN, downloading(200_000, 6 * STEP_NANOS));
+    }
+
+    @Test
+    public void time_remaining_is_derived_from_the_rate() {
+        AppUpdateInstallState state = AppUpdateInstallState.of(AppUpdateInstallState.Status.DOWNLOADING,
+                AppUpdateInstallState.ErrorCode.NO_ERROR, 4_000_000, TOTAL_BYTES, 200_000);
+        assertEquals(30_000, state.getEstimatedTimeRemainingMillis());
+
+        AppUpdateInstallState unknown = AppUpdateInstallState.of(AppUpdateInstallState.Status.DOWNLOADING,
+                AppUpdateInstallState.ErrorCode.NO_ERROR, 4_000_000, TOTAL_BYTES);
+        assertEquals(AppUpdateInstallState.TIME_REMAINING_UNKNOWN, unknown.getEstimatedTimeRemainingMillis());
+    }
+
+    private long downloading(long bytesDownloaded, long nowNanos) {
+        return estimator.onInstallState(AppUpdateInstallState.Status.DOWNLOADING, bytesDownloaded, TOTAL_BYTES, nowNanos);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks which pending tasks are dropped, with a delegate executor that only runs them when asked to.
+ */
+public class DropOldestExecutorTest {
+    private final ManualExecutor delegate = new ManualExecutor();
+    private final DropOldestExecutor executor = new DropOldestExecutor(delegate, 2);
+    private final List<String> ran = new ArrayList<>();
+
+    @Test
+    public void oldest_droppable_task_is_dropped_when_full() {
+        executor.execute(task("a"));
+        executor.execute(task("b"));
+        executor.execute(task("c"));
+        delegate.runAll();
+
+        assertEquals(2, ran.size());
+        assertEquals("b", ran.get(0));
+        assertEquals("c", ran.get(1));
+    }
+
+    @Test
+    public void retained_tasks_are_never_dropped() {
+        executor.execute(task("a"), false);
+        executor.execute(task("b"));
+        executor.execute(task("c"));
+        executor.execute(task("d"), false);
+        delegate.runAll();
+
+        assertEquals(2, ran.size());
+        assertEquals("a", ran.get(0));
+        assertEquals("d", ran.get(1));
+    }
+
+    @Test
+    public void new_droppable_task_is_dropped_when_every_pending_task_is_retained() {
+        executor.execute(task("a"), false);
+        executor.execute(task("b"), false);
+        executor.execute(task("c"));
+        delegate.runAll();
+
+        assertEquals(2, ran.size());
+        assertEquals("a", ran.get(0));
+        assertEquals("b", ran.get(1));
+    }
+
+    @Test
+    public void drain_starts_again_after_the_delegate_rejects_it() {
+        delegate.isRejecting = true;
+        try {
+            executor.execute(task("a"));
+            fail("The delegate should have rejected the drain");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+
+        delegate.isRejecting = false;
+        executor.execute(task("b"));
+        delegate.runAll();
+
+        assertEquals(2, ran.size());
+        assertEquals("a", ran.get(0));
+        assertEquals("b", ran.get(1));
+    }
+
+    @NonNull
+    private Runnable task(@NonNull final String name) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                ran.add(name);
+            }
+        };
+    }
+
+    private static final class ManualExecutor implements Executor {
+        private final List<Runnable> pending = new ArrayList<>();
+        private boolean isRejecting = false;
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            if (isRejecting)
+                throw new IllegalStateException("Rejected");
+            pending.add(command);
+        }
+
+        void runAll() {
+            while (!pending.isEmpty()) {
+                pending.remove(0).run();
+            }
+        }
+    }
+}
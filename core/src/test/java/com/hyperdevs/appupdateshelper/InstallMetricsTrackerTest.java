@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the metrics reported for the install states of an update flow.
+ */
+public class InstallMetricsTrackerTest {
+    private static final long TOTAL_BYTES = 1000;
+
+    private final RecordingSink sink = new RecordingSink();
+    private final InstallMetricsTracker tracker = new InstallMetricsTracker(sink);
+
+    @Test
+    public void flexible_flow_reports_transitions_and_download_timings() {
+        tracker.onFlowStarted(0);
+        state(AppUpdateInstallState.Status.UPDATE_ACCEPTED, 0, 100);
+        state(AppUpdateInstallState.Status.PENDING, 0, 200);
+        state(AppUpdateInstallState.Status.DOWNLOADING, 0, 300);
+        state(AppUpdateInstallState.Status.DOWNLOADING, 100, 450);
+        state(AppUpdateInstallState.Status.DOWNLOADING, 500, 600);
+        state(AppUpdateInstallState.Status.DOWNLOADED, TOTAL_BYTES, 1200);
+
+        assertEquals("UNKNOWN>UPDATE_ACCEPTED@100, UPDATE_ACCEPTED>PENDING@200, PENDING>DOWNLOADING@300, "
+                + "DOWNLOADING>DOWNLOADED@1200", String.join(", ", sink.transitions));
+        assertEquals(250, sink.firstByteNanos);
+        assertEquals(1000, sink.downloadNanos);
+        assertEquals(TOTAL_BYTES, sink.downloadBytes);
+        assertTrue(sink.failures.isEmpty());
+    }
+
+    @Test
+    public void flow_without_start_is_timed_from_its_first_state() {
+        state(AppUpdateInstallState.Status.DOWNLOADING, 100, 1000);
+        state(AppUpdateInstallState.Status.DOWNLOADED, TOTAL_BYTES, 1500);
+
+        assertEquals("UNKNOWN>DOWNLOADING@0, DOWNLOADING>DOWNLOADED@500", String.join(", ", sink.transitions));
+        assertEquals(0, sink.firstByteNanos);
+        assertEquals(500, sink.downloadNanos);
+    }
+
+    @Test
+    public void failures_are_reported_by_error_code_and_end_the_flow() {
+        tracker.onFlowStarted(0);
+        state(AppUpdateInstallState.Status.DOWNLOADING, 100, 100);
+        tracker.onInstallState(AppUpdateInstallState.Status.FAILED, AppUpdateInstallState.ErrorCode.ERROR_INSTALL_NOT_ALLOWED,
+                100, TOTAL_BYTES, 200);
+        state(AppUpdateInstallState.Status.PENDING, 0, 1000);
+
+        assertEquals("FAILED:ERROR_INSTALL_NOT_ALLOWED", String.join(", ", sink.failures));
+        assertEquals("UNKNOWN>DOWNLOADING@100, DOWNLOADING>FAILED@200, UNKNOWN>PENDING@0",
+                String.join(", ", sink.transitions));
+        assertEquals(-1, sink.downloadNanos);
+    }
+
+    @Test
+    public void repeated_states_are_not_transitions() {
+        state(AppUpdateInstallState.Status.DOWNLOADING, 100, 0);
+        state(AppUpdateInstallState.Status.DOWNLOADING, 100, 10);
+
+        assertEquals(1, sink.transitions.size());
+    }
+
+    private void state(@NonNull AppUpdateInstallState.Status status, long bytesDownloaded, long nowNanos) {
+        tracker.onInstallState(status, AppUpdateInstallState.ErrorCode.NO_ERROR, bytesDownloaded, TOTAL_BYTES, nowNanos);
+    }
+
+    private static final class RecordingSink implements MetricsSink {
+        private final List<String> transitions = new ArrayList<>();
+        private final List<String> failures = new ArrayList<>();
+        private long firstByteNanos = -1;
+        private long downloadNanos = -1;
+        private long downloadBytes = -1;
+
+        @Override
+        public void onUpdateInfoRequest(boolean isSuccessful,
+                                        @NonNull AppUpdateInstallState.ErrorCode errorCode,
+                                        long durationNanos) {
+        }
+
+        @Override
+        public void onStatusTransition(@NonNull AppUpdateInstallState.Status from,
+                                       @NonNull AppUpdateInstallState.Status to,
+                                       long sinceFlowStartNanos) {
+            transitions.add(from + ">" + to + "@" + sinceFlowStartNanos);
+        }
+
+        @Override
+        public void onDownloadFirstByte(long sinceDownloadStartNanos) {
+            firstByteNanos = sinceDownloadStartNanos;
+        }
+
+        @Override
+        public void onDownloadFinished(long totalBytes, long durationNanos) {
+            downloadBytes = totalBytes;
+            downloadNanos = durationNanos;
+        }
+
+        @Override
+        public void onInstallFailure(@NonNull AppUpdateInstallState.Status status,
+                                     @NonNull AppUpdateInstallState.ErrorCode errorCode) {
+            failures.add(status + ":" + errorCode);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the install state pipeline on a plain JVM, with a manual clock instead of the main thread.
+ */
+public class InstallStateDispatcherTest {
+    private static final long TOTAL_BYTES = 1000;
+
+    private final InstallStateDispatcher dispatcher = new InstallStateDispatcher();
+    private final ManualScheduler scheduler = new ManualScheduler();
+    private final List<AppUpdateInstallState> states = new ArrayList<>();
+    private final List<Long> progressBytes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        dispatcher.addInstallStateListener(new InstallStateListener() {
+            @Override
+            public void onInstallStateUpdate(@NonNull AppUpdateInstallState state) {
+                states.add(state);
+            }
+        });
+        dispatcher.addInstallProgressListener(new InstallProgressListener() {
+            @Override
+            public void onInstallProgress(@NonNull AppUpdateInstallState.Status status,
+                                          @NonNull AppUpdateInstallState.ErrorCode errorCode,
+                                          long bytesDownloaded,
+                                          long totalBytesToDownload) {
+                progressBytes.add(bytesDownloaded);
+            }
+        });
+    }
+
+    @Test
+    public void every_state_is_delivered_without_throttle() {
+        download(100);
+        download(101);
+        download(102);
+
+        assertEquals(3, states.size());
+        assertEquals(3, progressBytes.size());
+    }
+
+    @Test
+    public void throttled_progress_is_delivered_once_the_interval_elapses() {
+        dispatcher.setThrottle(new InstallStateThrottle(1000, 1f), scheduler);
+
+        download(100);
+        download(200);
+        download(300);
+
+        // Progress listeners are never throttled
+        assertEquals(3, progressBytes.size());
+        assertEquals(1, states.size());
+
+        scheduler.advanceTo(1000);
+
+        assertEquals(2, states.size());
+        assertEquals(300, states.get(1).getBytesDownloaded());
+    }
+
+    @Test
+    public void non_progress_states_cancel_pending_progress() {
+        dispatcher.setThrottle(new InstallStateThrottle(1000, 1f), scheduler);
+
+        download(100);
+        download(200);
+        dispatcher.dispatch(AppUpdateInstallState.Status.DOWNLOADED, AppUpdateInstallState.ErrorCode.NO_ERROR,
+                TOTAL_BYTES, TOTAL_BYTES);
+        scheduler.advanceTo(1000);
+
+        assertEquals(2, states.size());
+        assertEquals(AppUpdateInstallState.Status.DOWNLOADED, states.get(1).getStatus());
+    }
+
+    @Test
+    public void repeated_states_only_reach_progress_listeners() {
+        download(100);
+        download(100);
+
+        assertEquals(1, states.size());
+        assertEquals(2, progressBytes.size());
+    }
+
+    @Test
+    public void clear_removes_all_the_listeners() {
+        assertTrue(dispatcher.hasListeners());
+
+        dispatcher.clear();
+        download(100);
+
+        assertFalse(dispatcher.hasListeners());
+        assertTrue(states.isEmpty());
+        assertTrue(progressBytes.isEmpty());
+    }
+
+    private void download(long bytesDownloaded) {
+        dispatcher.dispatch(AppUpdateInstallState.Status.DOWNLOADING, AppUpdateInstallState.ErrorCode.NO_ERROR,
+                bytesDownloaded, TOTAL_BYTES);
+    }
+
+    private static final class ManualScheduler implements Scheduler {
+        private final List<Runnable> tasks = new ArrayList<>();
+        private final List<Long> times = new ArrayList<>();
+        private long now = 0;
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void postAtTime(@NonNull Runnable task, long uptimeMillis) {
+            tasks.add(task);
+            times.add(uptimeMillis);
+        }
+
+        @Override
+        public void removeCallbacks(@NonNull Runnable task) {
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                if (tasks.get(i) == task) {
+                    tasks.remove(i);
+                    times.remove(i);
+                }
+            }
+        }
+
+        void advanceTo(long uptimeMillis) {
+            now = uptimeMillis;
+            for (int i = 0; i < tasks.size(); i++) {
+                if (times.get(i) <= now) {
+                    Runnable task = tasks.remove(i);
+                    times.remove(i);
+                    i--;
+                    task.run();
+                }
+            }
+        }
+    }
+}
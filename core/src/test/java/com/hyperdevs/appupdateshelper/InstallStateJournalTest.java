@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the journal keeps the newest records and survives being reopened.
+ */
+public class InstallStateJournalTest {
+    private static final int CAPACITY = 4;
+    private static final long TOTAL_BYTES = 1000;
+
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        file = File.createTempFile("install_state_journal", null);
+    }
+
+    @After
+    public void tearDown() {
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    @Test
+    public void records_are_read_from_oldest_to_newest() throws IOException {
+        try (InstallStateJournal journal = new InstallStateJournal(file, CAPACITY)) {
+            downloading(journal, 100, 1);
+            downloading(journal, 200, 2);
+
+            List<InstallStateJournal.Entry> entries = journal.getEntries();
+            assertEquals(2, entries.size());
+            assertEquals(1, entries.get(0).getTimestampMillis());
+            assertEquals(200, entries.get(1).getState().getBytesDownloaded());
+            assertEquals(TOTAL_BYTES, entries.get(1).getState().getTotalBytesToDownload());
+        }
+    }
+
+    @Test
+    public void oldest_records_are_overwritten_when_full() throws IOException {
+        try (InstallStateJournal journal = new InstallStateJournal(file, CAPACITY)) {
+            for (int i = 1; i <= 10; i++) {
+                downloading(journal, i * 10, i);
+            }
+
+            List<InstallStateJournal.Entry> entries = journal.getEntries();
+            assertEquals(CAPACITY, entries.size());
+            assertEquals(7, entries.get(0).getTimestampMillis());
+            assertEquals(10, entries.get(CAPACITY - 1).getTimestampMillis());
+        }
+    }
+
+    @Test
+    public void records_survive_reopening() throws IOException {
+        try (InstallStateJournal journal = new InstallStateJournal(file, CAPACITY)) {
+            downloading(journal, 100, 1);
+            journal.append(AppUpdateInstallState.Status.FAILED, AppUpdateInstallState.ErrorCode.ERROR_INSTALL_NOT_ALLOWED,
+                    100, TOTAL_BYTES, 2);
+        }
+
+        try (InstallStateJournal journal = new InstallStateJournal(file, CAPACITY)) {
+            List<InstallStateJournal.Entry> entries = journal.getEntries();
+            assertEquals(2, entries.size());
+            assertEquals(AppUpdateInstallState.Status.FAILED, entries.get(1).getState().getStatus());
+            assertEquals(AppUpdateInstallState.ErrorCode.ERROR_INSTALL_NOT_ALLOWED, entries.get(1).getState().getErrorCode());
+        }
+    }
+
+    @Test
+    public void journal_is_cleared_when_the_capacity_changes() throws IOException {
+        try (InstallStateJournal journal = new InstallStateJournal(file, CAPACITY)) {
+            downloading(journal, 100, 1);
+        }
+
+        try (InstallStateJournal journal = new InstallStateJournal(file, CAPACITY * 2)) {
+            assertTrue(journal.getEntries().isEmpty());
+        }
+    }
+
+    @Test
+    public void records_are_exported_as_text() throws IOException {
+        try (InstallStateJournal journal = new InstallStateJournal(file, CAPACITY)) {
+            downloading(journal, 100, 1);
+
+            StringWriter writer = new StringWriter();
+            journal.export(writer);
+            assertEquals("1,DOWNLOADING,NO_ERROR,100,1000\n", writer.toString());
+        }
+    }
+
+    private static void downloading(InstallStateJournal journal, long bytesDownloaded, long timestampMillis) {
+        journal.append(AppUpdateInstallState.Status.DOWNLOADING, AppUpdateInstallState.ErrorCode.NO_ERROR,
+                bytesDownloaded, TOTAL_BYTES, timestampMillis);
+    }
+}
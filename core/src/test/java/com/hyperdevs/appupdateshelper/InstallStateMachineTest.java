@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import org.junit.Test;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the duplicate suppression and transition validation of the install states.
+ */
+public class InstallStateMachineTest {
+    private static final long TOTAL_BYTES = 1000;
+
+    private final InstallStateMachine machine = new InstallStateMachine();
+
+    @Test
+    public void first_state_is_always_accepted() {
+        assertSame(AppUpdateInstallState.unknown(), machine.getCurrentState());
+        assertTrue(machine.onInstallState(AppUpdateInstallState.unknown()));
+    }
+
+    @Test
+    public void flexible_flow_is_accepted() {
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.UPDATE_ACCEPTED, 0)));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.PENDING, 0)));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 100)));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 200)));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.PENDING, 200)));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 300)));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADED, TOTAL_BYTES)));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.INSTALLING, TOTAL_BYTES)));
+
+        assertEquals(AppUpdateInstallState.Status.INSTALLING, machine.getCurrentState().getStatus());
+    }
+
+    @Test
+    public void equal_states_are_dropped() {
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 100)));
+        assertFalse(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 100)));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADED, TOTAL_BYTES)));
+        assertFalse(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADED, TOTAL_BYTES)));
+    }
+
+    @Test
+    public void out_of_order_states_are_dropped() {
+        AppUpdateInstallState pending = state(AppUpdateInstallState.Status.PENDING, 0);
+        machine.onInstallState(pending);
+
+        assertFalse(machine.onInstallState(state(AppUpdateInstallState.Status.UPDATE_ACCEPTED, 0)));
+        assertSame(pending, machine.getCurrentState());
+
+        machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADED, TOTAL_BYTES));
+        assertFalse(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 500)));
+    }
+
+    @Test
+    public void new_flow_is_accepted_after_the_previous_one_finished() {
+        machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 100));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.FAILED, 100)));
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.UPDATE_ACCEPTED, 0)));
+    }
+
+    @Test
+    public void ongoing_updates_can_always_fail_or_be_canceled() {
+        for (AppUpdateInstallState.Status from : AppUpdateInstallState.Status.values()) {
+            assertTrue(InstallStateMachine.isLegalTransition(from, AppUpdateInstallState.Status.FAILED));
+            assertTrue(InstallStateMachine.isLegalTransition(from, AppUpdateInstallState.Status.CANCELED));
+            assertTrue(InstallStateMachine.isLegalTransition(from, AppUpdateInstallState.Status.DENIED));
+        }
+    }
+
+    @Test
+    public void denied_immediate_update_is_delivered_during_the_download() {
+        machine.onInstallState(state(AppUpdateInstallState.Status.UPDATE_ACCEPTED, 0));
+        machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 100));
+
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.DENIED, 100)));
+        assertEquals(AppUpdateInstallState.Status.DENIED, machine.getCurrentState().getStatus());
+    }
+
+    @Test
+    public void reset_accepts_any_next_state() {
+        machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADED, TOTAL_BYTES));
+        machine.reset();
+
+        assertTrue(machine.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 100)));
+    }
+
+    @NonNull
+    private static AppUpdateInstallState state(@NonNull AppUpdateInstallState.Status status, long bytesDownloaded) {
+        return AppUpdateInstallState.of(status, AppUpdateInstallState.ErrorCode.NO_ERROR, bytesDownloaded, TOTAL_BYTES);
+    }
+}
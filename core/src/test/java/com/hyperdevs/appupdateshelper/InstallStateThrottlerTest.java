@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that delayed progress updates and final states emitted from different threads stay in order.
+ */
+public class InstallStateThrottlerTest {
+    private static final int ATTEMPTS = 500;
+    private static final long TOTAL_BYTES = 1000;
+
+    @Test
+    public void delayed_progress_never_follows_a_final_state() throws Exception {
+        for (int i = 0; i < ATTEMPTS; i++) {
+            final RecordingListener listener = new RecordingListener();
+            final TaskScheduler scheduler = new TaskScheduler();
+            final InstallStateThrottler throttler =
+                    new InstallStateThrottler(new InstallStateThrottle(1000, 1f), scheduler, listener);
+            throttler.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 100));
+            throttler.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADING, 500));
+            scheduler.now = 1000;
+
+            // The scheduler thread flushes the delayed progress while a final state arrives from another thread
+            final CyclicBarrier barrier = new CyclicBarrier(2);
+            Thread schedulerThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    await(barrier);
+                    scheduler.task.run();
+                }
+            });
+            schedulerThread.start();
+            await(barrier);
+            throttler.onInstallState(state(AppUpdateInstallState.Status.DOWNLOADED, TOTAL_BYTES));
+            schedulerThread.join();
+
+            assertEquals(AppUpdateInstallState.Status.DOWNLOADED, listener.getLastStatus());
+        }
+    }
+
+    @NonNull
+    private static AppUpdateInstallState state(@NonNull AppUpdateInstallState.Status status, long bytesDownloaded) {
+        return AppUpdateInstallState.of(status, AppUpdateInstallState.ErrorCode.NO_ERROR, bytesDownloaded, TOTAL_BYTES);
+    }
+
+    private static void await(@NonNull CyclicBarrier barrier) {
+        try {
+            barrier.await();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class RecordingListener implements InstallStateListener {
+        private final List<AppUpdateInstallState.Status> statuses = new ArrayList<>();
+
+        @Override
+        public synchronized void onInstallStateUpdate(@NonNull AppUpdateInstallState state) {
+            statuses.add(state.getStatus());
+        }
+
+        @NonNull
+        synchronized AppUpdateInstallState.Status getLastStatus() {
+            return statuses.get(statuses.size() - 1);
+        }
+    }
+
+    /**
+     * Keeps the posted task so the test can run it from any thread. Removing it doesn't stop a run that
+     * already started, like in a real scheduler.
+     */
+    private static final class TaskScheduler implements Scheduler {
+        private volatile long now = 0;
+        private volatile Runnable task = null;
+
+        @Override
+        public long uptimeMillis() {
+            return now;
+        }
+
+        @Override
+        public void postAtTime(@NonNull Runnable task, long uptimeMillis) {
+            this.task = task;
+        }
+
+        @Override
+        public void removeCallbacks(@NonNull Runnable task) {
+            // The flush checks the pending state, so running it after a removal does nothing
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper
+
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.channels.awaitClose
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.SharingStarted
+import kotlinx.coroutines.flow.StateFlow
+import kotlinx.coroutines.flow.callbackFlow
+import kotlinx.coroutines.flow.conflate
+import kotlinx.coroutines.flow.stateIn
+import kotlinx.coroutines.suspendCancellableCoroutine
+import kotlinx.coroutines.withTimeout
+import kotlin.coroutines.resume
+import kotlin.time.Duration
+
+/**
+ * Returns a cold [Flow] of the install state updates of the helper.
+ *
+ * The listener is added when the flow is collected and removed when the collection finishes. The flow is
+ * conflated, so slow collectors only receive the latest update instead of queueing all of them.
+ */
+fun AppUpdatesHelper.installStateFlow(): Flow<AppUpdateInstallState> = callbackFlow {
+    val registration = addInstallStateListener { state -> trySend(state) }
+    awaitClose { registration.remove() }
+}.conflate()
+
+/**
+ * Returns a [StateFlow] with the latest install state of the helper, starting with
+ * [AppUpdateInstallState.unknown].
+ *
+ * The listener is bound to the given [scope]: it's removed when the scope is cancelled or, depending on
+ * [started], when there are no subscribers.
+ *
+ * @param scope Scope in which the install state updates are collected
+ * @param started Strategy that controls when the listener is added and removed
+ */
+fun AppUpdatesHelper.installStateIn(
+    scope: CoroutineScope,
+    started: SharingStarted = SharingStarted.WhileSubscribed()
+): StateFlow<AppUpdateInstallState> =
+    installStateFlow().stateIn(scope, started, AppUpdateInstallState.unknown())
+
+/**
+ * Suspending version of [AppUpdatesHelper.getAppUpdateInfo].
+ *
+ * Cancelling the calling coroutine stops waiting for the result, which is then discarded.
+ *
+ * @param timeout Maximum time to wait for the result
+ * @throws kotlinx.coroutines.TimeoutCancellationException if the result isn't received before [timeout]
+ */
+suspend fun AppUpdatesHelper.awaitAppUpdateInfo(timeout: Duration = Duration.INFINITE): AppUpdateInfoResult =
+    withTimeout(timeout) {
+        suspendCancellableCoroutine { continuation ->
+            getAppUpdateInfo { result ->
+                if (continuation.isActive) continuation.resume(result)
+            }
+        }
+    }
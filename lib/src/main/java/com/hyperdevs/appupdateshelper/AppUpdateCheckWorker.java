@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.PowerManager;
+
+import com.google.android.play.core.appupdate.AppUpdateInfo;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+/**
+ * {@link Worker} that checks for app updates periodically in the background and stores the result in the
+ * {@link AppUpdateInfoCache}, so helpers using the cache don't need to query the Play Store service when
+ * a screen is opened.
+ * <p>
+ * Checks only run on unmetered networks, when the battery is not low and, on API 23 and above, when the
+ * device is idle. WorkManager has no constraint for the battery saver, so checks started while it's on are
+ * skipped until the next period.
+ * <p>
+ * The results are stored in the cache set with
+ * {@link AppUpdatesHelper#setBackgroundCheckConfiguration(AppUpdateInfoCache, UpdateInfoCircuitBreaker)}, or in
+ * an {@link AppUpdateInfoCache} with the default times to live if none is set. Like
+ * {@link AppUpdatesHelper#getAppUpdateInfo(GetUpdateInfoListener)}, checks are skipped while the cached result is
+ * valid or the configured {@link UpdateInfoCircuitBreaker} is open, and their results update the breaker.
+ * <p>
+ * This class requires WorkManager, which is not included by the library. Add
+ * {@code androidx.work:work-runtime} to your dependencies before using it.
+ */
+public final class AppUpdateCheckWorker extends Worker {
+    public static final long DEFAULT_REPEAT_INTERVAL_HOURS = 12;
+
+    private static final String TAG = "AppUpdateCheckWorker";
+    private static final String UNIQUE_WORK_NAME = "com.hyperdevs.appupdateshelper.update_check";
+    private static final long REQUEST_TIMEOUT_SECONDS = 60;
+
+    public AppUpdateCheckWorker(@NonNull Context context, @NonNull WorkerParameters workerParams) {
+        super(context, workerParams);
+    }
+
+    /**
+     * Schedules the periodic check with the default repeat interval. If it's already scheduled,
+     * nothing is changed.
+     *
+     * @param context Context used to access WorkManager.
+     */
+    public static void schedule(@NonNull Context context) {
+        schedule(context, DEFAULT_REPEAT_INTERVAL_HOURS, TimeUnit.HOURS);
+    }
+
+    /**
+     * Schedules the periodic check with a custom repeat interval. If it's already scheduled,
+     * nothing is changed.
+     *
+     * @param context        Context used to access WorkManager.
+     * @param repeatInterval Time between checks. WorkManager doesn't allow intervals shorter than 15 minutes.
+     * @param unit           Unit of the repeat interval.
+     */
+    public static void schedule(@NonNull Context context, long repeatInterval, @NonNull TimeUnit unit) {
+        Constraints.Builder constraints = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresBatteryNotLow(true);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+            constraints.setRequiresDeviceIdle(true);
+        }
+
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(AppUpdateCheckWorker.class, repeatInterval, unit)
+                .setConstraints(constraints.build())
+                .build();
+
+        WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(UNIQUE_WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Cancels the periodic check.
+     *
+     * @param context Context used to access WorkManager.
+     */
+    public static void cancel(@NonNull Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(UNIQUE_WORK_NAME);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        LogcatLogger.setAsDefaultIfDebuggable(context);
+
+        PowerManager powerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        if (powerManager != null && powerManager.isPowerSaveMode()) {
+            // Retrying would wake the device up again on the backoff schedule, so the next period makes the check
+            Logs.d(TAG, "Battery saver is on, skipping the check", null);
+            return Result.success();
+        }
+
+        AppUpdateInfoCache cache = SharedAppUpdateManager.getBackgroundCheckCache();
+        if (cache == null) {
+            cache = new AppUpdateInfoCache(context);
+        }
+        if (cache.get() != null) {
+            Logs.d(TAG, "Cached update info is still valid, skipping the check", null);
+            return Result.success();
+        }
+
+        UpdateInfoCircuitBreaker breaker = SharedAppUpdateManager.getBackgroundCheckCircuitBreaker();
+        if (breaker != null && breaker.getShortCircuitResult() != null) {
+            Logs.d(TAG, "Circuit open, skipping the check", null);
+            return Result.success();
+        }
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<AppUpdateInfoResult> resultReference = new AtomicReference<>();
+
+        // Goes through the shared manager so a check made while a screen is requesting the update info
+        // reuses its request
+        SharedAppUpdateManager.get(context).requestAppUpdateInfo(
+                new SharedAppUpdateManager.UpdateInfoCallback() {
+                    @Override
+                    public void onUpdateInfo(@Nullable AppUpdateInfo info, @NonNull AppUpdateInfoResult result) {
+                        resultReference.set(result);
+                        latch.countDown();
+                    }
+                }, null);
+
+        try {
+            if (!latch.await(REQUEST_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                Logs.w(TAG, "Update info not received after seconds: ", REQUEST_TIMEOUT_SECONDS);
+                return Result.retry();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+
+        AppUpdateInfoResult result = resultReference.get();
+        Logs.d(TAG, "Background update info: ", result);
+        if (breaker != null) {
+            breaker.onResult(result);
+        }
+        if (!result.isSuccessful()) {
+            return RetryPolicy.isRetryable(result.getException()) ? Result.retry() : Result.failure();
+        }
+
+        cache.put(result);
+        return Result.success();
+    }
+}
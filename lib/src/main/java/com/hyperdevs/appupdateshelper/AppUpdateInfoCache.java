@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.PackageManager;
+
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.content.pm.PackageInfoCompat;
+
+/**
+ * On-disk cache of the last successful {@link AppUpdateInfoResult}, used to avoid querying the Play Store
+ * service on every cold start.
+ * <p>
+ * Only results that report {@link AppUpdateInfoResult.Availability#UPDATE_AVAILABLE UPDATE_AVAILABLE} or
+ * {@link AppUpdateInfoResult.Availability#UPDATE_NOT_AVAILABLE UPDATE_NOT_AVAILABLE} are stored, each one with
+ * its own time to live. Any stored result is discarded as soon as the installed version code of the app changes.
+ * <p>
+ * Enable it with {@link AppUpdatesHelper#setAppUpdateInfoCache(AppUpdateInfoCache)}.
+ */
+public class AppUpdateInfoCache {
+    public static final long DEFAULT_UPDATE_AVAILABLE_TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+    public static final long DEFAULT_NO_UPDATE_TTL_MILLIS = TimeUnit.HOURS.toMillis(6);
+
+    private static final String TAG = "AppUpdateInfoCache";
+
+    private static final String PREFERENCES_NAME = "com.hyperdevs.appupdateshelper.update_info_cache";
+
+    private static final String KEY_STORED_AT = "stored_at";
+    private static final String KEY_INSTALLED_VERSION_CODE = "installed_version_code";
+    private static final String KEY_VERSION_CODE = "version_code";
+    private static final String KEY_UPDATE_AVAILABILITY = "update_availability";
+    private static final String KEY_UPDATE_PRIORITY = "update_priority";
+    private static final String KEY_CAN_INSTALL_FLEXIBLE_UPDATE = "can_install_flexible_update";
+    private static final String KEY_CAN_INSTALL_IMMEDIATE_UPDATE = "can_install_immediate_update";
+    private static final String KEY_CLIENT_VERSION_STALENESS_DAYS = "client_version_staleness_days";
+
+    private static final long INSTALLED_VERSION_UNKNOWN = -1;
+
+    private final SharedPreferences preferences;
+    private final long installedVersionCode;
+    private final long updateAvailableTtlMillis;
+    private final long noUpdateTtlMillis;
+
+    /**
+     * Creates a cache with the default time to live values.
+     *
+     * @param context Context used to access the cache storage.
+     */
+    public AppUpdateInfoCache(@NonNull Context context) {
+        this(context, DEFAULT_UPDATE_AVAILABLE_TTL_MILLIS, DEFAULT_NO_UPDATE_TTL_MILLIS);
+    }
+
+    /**
+     * Creates a cache with custom time to live values.
+     *
+     * @param context                  Context used to access the cache storage.
+     * @param updateAvailableTtlMillis Time in milliseconds a result that reports an available update is valid.
+     * @param noUpdateTtlMillis        Time in milliseconds a result that reports no available updates is valid.
+     */
+    public AppUpdateInfoCache(@NonNull Context context,
+                              long updateAvailableTtlMillis,
+                              long noUpdateTtlMillis) {
+        if (updateAvailableTtlMillis < 0 || noUpdateTtlMillis < 0)
+            throw new IllegalArgumentException("Cache TTL values must not be negative");
+
+        Context appContext = context.getApplicationContext();
+        this.preferences = appContext.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.installedVersionCode = getInstalledVersionCode(appContext);
+        this.updateAvailableTtlMillis = updateAvailableTtlMillis;
+        this.noUpdateTtlMillis = noUpdateTtlMillis;
+    }
+
+    /**
+     * Returns the stored result if it's still valid, or null otherwise.
+     */
+    @Nullable
+    public AppUpdateInfoResult get() {
+        if (installedVersionCode == INSTALLED_VERSION_UNKNOWN) return null;
+        if (preferences.getLong(KEY_INSTALLED_VERSION_CODE, INSTALLED_VERSION_UNKNOWN) != installedVersionCode) {
+            return null;
+        }
+
+        AppUpdateInfoResult.Availability availability = parseAvailability(
+                preferences.getString(KEY_UPDATE_AVAILABILITY, null));
+        if (!isCacheable(availability)) return null;
+
+        long storedAt = preferences.getLong(KEY_STORED_AT, 0);
+        long age = System.currentTimeMillis() - storedAt;
+        // A negative age means that the clock was changed, so we can't trust the stored value
+        if (age < 0 || age > getTtlMillis(availability)) {
+            Logs.d(TAG, "Discarding cached update info stored ms ago: ", age);
+            return null;
+        }
+
+        return new AppUpdateInfoResult(
+                true,
+                preferences.getInt(KEY_VERSION_CODE, AppUpdateInfoResult.VERSION_UNKNOWN),
+                availability,
+                preferences.getInt(KEY_UPDATE_PRIORITY, AppUpdateInfoResult.UPDATE_PRIORITY_UNKNOWN),
+                preferences.getBoolean(KEY_CAN_INSTALL_FLEXIBLE_UPDATE, false),
+                preferences.getBoolean(KEY_CAN_INSTALL_IMMEDIATE_UPDATE, false),
+                preferences.getInt(KEY_CLIENT_VERSION_STALENESS_DAYS, AppUpdateInfoResult.VERSION_STALENESS_UNKNOWN),
+                null);
+    }
+
+    /**
+     * Stores a result in the cache. Unsuccessful results or results with a non-cacheable availability
+     * are ignored.
+     *
+     * @param result The result to store.
+     */
+    public void put(@NonNull AppUpdateInfoResult result) {
+        if (!result.isSuccessful() || !isCacheable(result.getUpdateAvailability())) return;
+        if (installedVersionCode == INSTALLED_VERSION_UNKNOWN) return;
+
+        preferences.edit()
+                .putLong(KEY_STORED_AT, System.currentTimeMillis())
+                .putLong(KEY_INSTALLED_VERSION_CODE, installedVersionCode)
+                .putInt(KEY_VERSION_CODE, result.getVersionCode())
+                .putString(KEY_UPDATE_AVAILABILITY, result.getUpdateAvailability().name())
+                .putInt(KEY_UPDATE_PRIORITY, result.getUpdatePriority())
+                .putBoolean(KEY_CAN_INSTALL_FLEXIBLE_UPDATE, result.canInstallFlexibleUpdate())
+                .putBoolean(KEY_CAN_INSTALL_IMMEDIATE_UPDATE, result.canInstallImmediateUpdate())
+                .putInt(KEY_CLIENT_VERSION_STALENESS_DAYS, result.getClientVersionStalenessDays())
+                .apply();
+    }
+
+    /**
+     * Removes any stored result.
+     */
+    public void clear() {
+        preferences.edit().clear().apply();
+    }
+
+    private long getTtlMillis(@NonNull AppUpdateInfoResult.Availability availability) {
+        return availability == AppUpdateInfoResult.Availability.UPDATE_AVAILABLE
+                ? updateAvailableTtlMillis
+                : noUpdateTtlMillis;
+    }
+
+    private static boolean isCacheable(@Nullable AppUpdateInfoResult.Availability availability) {
+        // In-progress states change while the update downloads, so they are never cached
+        return availability == AppUpdateInfoResult.Availability.UPDATE_AVAILABLE ||
+                availability == AppUpdateInfoResult.Availability.UPDATE_NOT_AVAILABLE;
+    }
+
+    @Nullable
+    private static AppUpdateInfoResult.Availability parseAvailability(@Nullable String value) {
+        if (value == null) return null;
+        try {
+            return AppUpdateInfoResult.Availability.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static long getInstalledVersionCode(@NonNull Context context) {
+        try {
+            return PackageInfoCompat.getLongVersionCode(
+                    context.getPackageManager().getPackageInfo(context.getPackageName(), 0));
+        } catch (PackageManager.NameNotFoundException e) {
+            return INSTALLED_VERSION_UNKNOWN;
+        }
+    }
+}
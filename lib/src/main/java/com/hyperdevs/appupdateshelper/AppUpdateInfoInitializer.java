@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+
+import java.util.Collections;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+import androidx.startup.Initializer;
+
+/**
+ * Optional {@link Initializer} that requests the update info in the background when the app starts,
+ * so the first call to {@link AppUpdatesHelper#getAppUpdateInfo(GetUpdateInfoListener)} receives the result
+ * without waiting for the Play Store service.
+ * <p>
+ * The request is started the first time that the main thread is idle, so it doesn't delay the first frame.
+ * The prefetched result is only kept for a few minutes and is delivered once.
+ * <p>
+ * The request is made in a background thread, and it's skipped while the result of the cache set with
+ * {@link AppUpdatesHelper#setBackgroundCheckConfiguration(AppUpdateInfoCache, UpdateInfoCircuitBreaker)} is
+ * valid or its circuit breaker is open.
+ * <p>
+ * It's not enabled by default. To enable it, add it to the {@code InitializationProvider} in your manifest:
+ * <pre>{@code
+ * <provider
+ *     android:name="androidx.startup.InitializationProvider"
+ *     android:authorities="${applicationId}.androidx-startup"
+ *     android:exported="false"
+ *     tools:node="merge">
+ *     <meta-data
+ *         android:name="com.hyperdevs.appupdateshelper.AppUpdateInfoInitializer"
+ *         android:value="androidx.startup" />
+ * </provider>
+ * }</pre>
+ */
+public final class AppUpdateInfoInitializer implements Initializer<Void> {
+    private static final String THREAD_NAME = "AppUpdateInfoPrefetch";
+
+    @Override
+    public Void create(@NonNull Context context) {
+        final SharedAppUpdateManager sharedManager = SharedAppUpdateManager.get(context);
+
+        // Idle handlers must be added from the thread that owns the queue
+        new Handler(Looper.getMainLooper()).post(new Runnable() {
+            @Override
+            public void run() {
+                Looper.myQueue().addIdleHandler(new MessageQueue.IdleHandler() {
+                    @Override
+                    public boolean queueIdle() {
+                        // The cache and the circuit breaker read from disk, so they are checked off the main thread
+                        new Thread(new Runnable() {
+                            @Override
+                            public void run() {
+                                sharedManager.prefetchAppUpdateInfo();
+                            }
+                        }, THREAD_NAME).start();
+                        return false;
+                    }
+                });
+            }
+        });
+        return null;
+    }
+
+    @NonNull
+    @Override
+    public List<Class<? extends Initializer<?>>> dependencies() {
+        return Collections.emptyList();
+    }
+}
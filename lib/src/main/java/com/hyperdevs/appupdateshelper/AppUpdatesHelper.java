@@ -23,20 +23,33 @@ import android.content.Context;
 import android.content.Intent;
 import android.content.IntentSender;
 import android.os.Bundle;
-import android.util.Log;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 import android.view.View;
 
+import com.google.android.gms.tasks.CancellationToken;
 import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.TaskCompletionSource;
 import com.google.android.play.core.appupdate.AppUpdateInfo;
 import com.google.android.play.core.appupdate.AppUpdateManager;
-import com.google.android.play.core.appupdate.AppUpdateManagerFactory;
 import com.google.android.play.core.install.InstallState;
 import com.google.android.play.core.install.InstallStateUpdatedListener;
 import com.google.android.play.core.install.model.AppUpdateType;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
 
 import static android.app.Activity.RESULT_CANCELED;
 import static com.google.android.play.core.install.model.ActivityResult.RESULT_IN_APP_UPDATE_FAILED;
@@ -60,21 +73,62 @@ public class AppUpdatesHelper {
     static final int IMMEDIATE_UPDATE_REQUEST_CODE = 13371;
     static final int FLEXIBLE_UPDATE_REQUEST_CODE = 13372;
 
+    public static final int UNBOUNDED_PENDING_INSTALL_STATES = 0;
+
     private static final String TAG = "AppUpdatesHelper";
 
-    private final AppUpdateManager manager;
-    private InstallStateListener installStateListener;
-    private boolean isListening = false;
-    private AppUpdateInfo appUpdateInfo = null;
-    private InstallStateUpdatedListener installStateUpdatedListener;
+    private final SharedAppUpdateManager sharedManager;
+    private final Object listenersLock = new Object();
+    private final InstallStateDispatcher installStateDispatcher = new InstallStateDispatcher();
+    private final InstallStateUpdatedListener installStateUpdatedListener = new InstallStateUpdatedListener() {
+        @Override
+        public void onStateUpdate(final InstallState installState) {
+            Executor executor = mappingExecutor;
+            if (executor == null) {
+                onInstallState(installState);
+            } else {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        onInstallState(installState);
+                    }
+                });
+            }
+        }
+    };
+    // Guarded by listenersLock
+    private boolean isAttachedToManager = false;
+    private boolean isWeakListenerDispatch = false;
+    private boolean isListeningDirectly = false;
+    private final List<LifecycleBinding> lifecycleBindings = new ArrayList<>();
+    // Written from Play Core callbacks and read from the caller threads, so they are always read once
+    // into a local variable
+    private volatile boolean isListening = false;
+    private volatile AppUpdateInfo appUpdateInfo = null;
+    // Whether the last update info came from a cached result reporting an available update
+    private volatile boolean hasCachedUpdateInfo = false;
+    private volatile AppUpdateInfoCache appUpdateInfoCache = null;
+    private volatile Executor mappingExecutor = null;
+    private volatile Executor deliveryExecutor = null;
+    private Handler mainHandler = null;
+    // Identifies the retries posted to the main handler, so they can be canceled
+    private final Object retryToken = new Object();
+    private volatile RetryPolicy retryPolicy = null;
+    private volatile UpdateInfoCircuitBreaker circuitBreaker = null;
+    private volatile MetricsSink metricsSink = null;
 
     /**
      * Creates a helper instance with a given context.
+     * <p>
+     * All the helpers created this way share the same {@link AppUpdateManager} and a single registered
+     * {@link InstallStateUpdatedListener}, so creating a helper per screen is cheap. The manager is created
+     * lazily, the first time that any helper needs it.
      *
      * @param context Context to use to build the helper.
      */
     public AppUpdatesHelper(@NonNull Context context) {
-        this(AppUpdateManagerFactory.create(context));
+        this(SharedAppUpdateManager.get(context));
+        LogcatLogger.setAsDefaultIfDebuggable(context);
     }
 
     /**
@@ -83,40 +137,345 @@ public class AppUpdatesHelper {
      * @param appUpdateManager app update manager to use.
      */
     AppUpdatesHelper(@NonNull AppUpdateManager appUpdateManager) {
-        this.manager = appUpdateManager;
+        this(new SharedAppUpdateManager(appUpdateManager));
+    }
+
+    private AppUpdatesHelper(@NonNull SharedAppUpdateManager sharedManager) {
+        this.sharedManager = sharedManager;
+    }
+
+    /**
+     * Sets the logger used by all the helpers.
+     * <p>
+     * By default, debuggable apps log to logcat and any other app doesn't log at all.
+     *
+     * @param logger Logger to use, or {@link AppUpdatesLogger#NONE} to disable logging.
+     */
+    public static void setLogger(@NonNull AppUpdatesLogger logger) {
+        Logs.setLogger(logger);
+    }
+
+    /**
+     * Sets the cache and the circuit breaker used by the update checks made without a helper, like the ones of
+     * {@link AppUpdateInfoInitializer} and {@link AppUpdateCheckWorker}. These checks may run before any helper
+     * is created, so call it in {@code Application.onCreate()} with the same configuration used in the helpers.
+     * <p>
+     * Without a cache, the prefetch of {@link AppUpdateInfoInitializer} always queries the Play Store and
+     * {@link AppUpdateCheckWorker} uses an {@link AppUpdateInfoCache} with the default times to live. Without a
+     * circuit breaker, neither of them checks nor updates any.
+     *
+     * @param cache          Cache used by the helpers, or null if they don't use any.
+     * @param circuitBreaker Circuit breaker used by the helpers, or null if they don't use any.
+     */
+    public static void setBackgroundCheckConfiguration(@Nullable AppUpdateInfoCache cache,
+                                                       @Nullable UpdateInfoCircuitBreaker circuitBreaker) {
+        SharedAppUpdateManager.setBackgroundCheckConfiguration(cache, circuitBreaker);
+    }
+
+    /**
+     * Sets an on-disk cache for the results of {@link #getAppUpdateInfo(GetUpdateInfoListener)}.
+     * <p>
+     * While a cached result is valid, it will be returned without querying the Play Store. Cached results don't
+     * carry the update info that Play Core needs to start an update, so if the listener starts an update flow
+     * from a cached result that reports an available update, the update info is requested before starting it.
+     * If that request fails, the install state listeners receive a
+     * {@link AppUpdateInstallState.Status#FAILED FAILED} state.
+     *
+     * @param appUpdateInfoCache Cache to use, or null to disable caching.
+     */
+    public void setAppUpdateInfoCache(@Nullable AppUpdateInfoCache appUpdateInfoCache) {
+        this.appUpdateInfoCache = appUpdateInfoCache;
+    }
+
+    /**
+     * Sets whether the {@link AppUpdateManager} shared between helpers only keeps a weak reference to this
+     * helper.
+     * <p>
+     * By default, the shared manager keeps the helper, its listeners and anything they reference in memory
+     * until {@link #stopListening()} is called. With weak dispatch, a helper that isn't referenced anymore, like
+     * the one of a destroyed screen, can be garbage collected even if it's still listening. In exchange,
+     * the helper must be kept referenced for as long as its listeners should receive events.
+     *
+     * @param weakListenerDispatch Whether to enable weak dispatch.
+     */
+    public void setWeakListenerDispatch(boolean weakListenerDispatch) {
+        synchronized (listenersLock) {
+            if (isWeakListenerDispatch == weakListenerDispatch) return;
+            isWeakListenerDispatch = weakListenerDispatch;
+            if (isAttachedToManager) {
+                // The shared manager may keep this helper registered, so it's attached again with the new mode
+                sharedManager.removeInstallStateListener(installStateUpdatedListener);
+                sharedManager.addInstallStateListener(installStateUpdatedListener, weakListenerDispatch);
+            }
+        }
+    }
+
+    /**
+     * Sets a policy to retry failed update info requests. Listeners only receive the result of the last
+     * attempt.
+     *
+     * @param retryPolicy Policy to use, or null to never retry.
+     */
+    public void setRetryPolicy(@Nullable RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /**
+     * Sets a circuit breaker that stops querying the Play Store after repeated permanent failures. While the
+     * circuit is open, {@link #getAppUpdateInfo(GetUpdateInfoListener)} returns the last failure immediately.
+     *
+     * @param circuitBreaker Circuit breaker to use, or null to always query the Play Store.
+     */
+    public void setCircuitBreaker(@Nullable UpdateInfoCircuitBreaker circuitBreaker) {
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    /**
+     * Sets a sink that receives the timings and outcomes of the update checks and update flows of this helper,
+     * such as the duration of {@link #getAppUpdateInfo(GetUpdateInfoListener)} or the time to download an update.
+     *
+     * @param metricsSink Sink to use, or null to disable the metrics.
+     */
+    public void setMetricsSink(@Nullable MetricsSink metricsSink) {
+        this.metricsSink = metricsSink;
+        installStateDispatcher.setMetricsSink(metricsSink);
+    }
+
+    /**
+     * Sets a journal that records every install state update received by this helper, so it can be exported
+     * after a failed update. The journal is kept open until it's replaced; closing it is up to the caller.
+     *
+     * @param journal Journal to use, or null to stop recording the updates.
+     */
+    public void setInstallStateJournal(@Nullable InstallStateJournal journal) {
+        installStateDispatcher.setJournal(journal);
+    }
+
+    /**
+     * Sets a policy to limit how often download progress updates are delivered to the install state
+     * listeners. Any other install state is always delivered as soon as it's received.
+     * <p>
+     * The method must be called from the main thread.
+     *
+     * @param throttle Policy to use, or null to deliver every update.
+     */
+    public void setInstallStateThrottle(@Nullable InstallStateThrottle throttle) {
+        installStateDispatcher.setThrottle(throttle, new HandlerScheduler(getMainHandler()));
+    }
+
+    /**
+     * Sets the executor used to process and deliver the results of the helper to its listeners.
+     *
+     * @param executor Executor to use, or null to process and deliver everything in the main thread.
+     * @see #setCallbackExecutors(Executor, Executor, int)
+     */
+    public void setCallbackExecutor(@Nullable Executor executor) {
+        setCallbackExecutors(executor, executor, UNBOUNDED_PENDING_INSTALL_STATES);
+    }
+
+    /**
+     * Sets the executors used to process and deliver the results of the helper to its listeners.
+     * <p>
+     * The mapping executor builds the {@link AppUpdateInfoResult}s and {@link AppUpdateInstallState}s, and the
+     * delivery executor calls the listeners with them. Both of them should run their tasks in order (for
+     * example, a single thread executor) so install states are delivered in the order they were received.
+     * <p>
+     * Install state deliveries can be limited to a number of pending ones for slow listeners: when the limit is
+     * reached, the oldest pending download progress delivery is dropped. Other states, like the final ones, are
+     * always delivered.
+     *
+     * @param mappingExecutor         Executor used to build the results, or null to use the main thread.
+     * @param deliveryExecutor        Executor used to call the listeners, or null to call them in the thread
+     *                                that built the result.
+     * @param maxPendingInstallStates Maximum number of pending install state deliveries, or
+     *                                {@link #UNBOUNDED_PENDING_INSTALL_STATES} to keep all of them. It can
+     *                                only be bounded with a delivery executor.
+     */
+    public void setCallbackExecutors(@Nullable Executor mappingExecutor,
+                                     @Nullable Executor deliveryExecutor,
+                                     int maxPendingInstallStates) {
+        if (maxPendingInstallStates != UNBOUNDED_PENDING_INSTALL_STATES && deliveryExecutor == null)
+            throw new IllegalArgumentException("Pending install states can only be bounded with a delivery executor");
+
+        this.mappingExecutor = mappingExecutor;
+        this.deliveryExecutor = deliveryExecutor;
+        installStateDispatcher.setExecutor(maxPendingInstallStates != UNBOUNDED_PENDING_INSTALL_STATES
+                ? new DropOldestExecutor(deliveryExecutor, maxPendingInstallStates)
+                : deliveryExecutor);
     }
 
     /**
      * Starts listening for app updates and install changes.
+     * <p>
+     * Calling this method again adds another listener: all of them will receive the same events until
+     * {@link #stopListening()} is called.
      */
     public void startListening(@NonNull final InstallStateListener installStateListener) {
-        if (!isListening) {
-            this.isListening = true;
-            this.installStateListener = installStateListener;
-            this.installStateUpdatedListener = new InstallStateUpdatedListener() {
-                @Override
-                public void onStateUpdate(InstallState installState) {
-                    AppUpdateInstallState state = new AppUpdateInstallState(installState);
-                    Log.d(TAG, "Update status result: " + state.toString());
+        synchronized (listenersLock) {
+            isListeningDirectly = true;
+            updateListening();
+            addInstallStateListener(installStateListener);
+        }
+    }
 
-                    installStateListener.onInstallStateUpdate(state);
-                }
-            };
-            this.manager.registerListener(installStateUpdatedListener);
+    /**
+     * Starts listening for app updates and install changes while a lifecycle is at least started.
+     * <p>
+     * The listener is added when the lifecycle reaches {@link Lifecycle.State#STARTED STARTED} and removed
+     * when it's stopped, so a screen in the background doesn't receive install changes. When the lifecycle
+     * is destroyed its listener is removed, so there's no need to call {@link #stopListening()}. The helper
+     * keeps listening while other listeners added with this method or {@link #startListening(InstallStateListener)}
+     * remain.
+     * <p>
+     * It must be called from the main thread.
+     *
+     * @param lifecycleOwner       Owner of the lifecycle to bind to, like an {@link Activity} or the view
+     *                             lifecycle owner of a {@link Fragment}.
+     * @param installStateListener Listener to add.
+     */
+    public void startListening(@NonNull LifecycleOwner lifecycleOwner,
+                               @NonNull InstallStateListener installStateListener) {
+        Lifecycle lifecycle = lifecycleOwner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) return;
+
+        LifecycleBinding binding = new LifecycleBinding(lifecycle, installStateListener);
+        synchronized (listenersLock) {
+            lifecycleBindings.add(binding);
+            updateListening();
         }
+        lifecycle.addObserver(binding);
     }
 
     /**
-     * Stops listening for app updates and install changes.
+     * Stops listening for app updates and install changes, removing all the listeners, including the ones
+     * bound to a lifecycle.
+     * <p>
+     * Pending retries of failed update checks are canceled, so their listeners aren't notified.
      */
     public void stopListening() {
-        isListening = false;
-        manager.unregisterListener(installStateUpdatedListener);
+        synchronized (listenersLock) {
+            isListeningDirectly = false;
+            for (LifecycleBinding binding : lifecycleBindings) {
+                binding.detach();
+            }
+            lifecycleBindings.clear();
+            updateListening();
+            installStateDispatcher.clear();
+            updateManagerRegistration();
+        }
+        cancelPendingRetries();
+    }
+
+    // Guarded by listenersLock
+    private void updateListening() {
+        isListening = isListeningDirectly || !lifecycleBindings.isEmpty();
+    }
+
+    /**
+     * Adds a listener for install changes that can be removed independently of the other ones.
+     * <p>
+     * Unlike {@link #startListening(InstallStateListener)}, this method doesn't enable the update flows
+     * of the helper, so it's suitable for listeners that only observe the install progress.
+     *
+     * @param installStateListener Listener to add.
+     * @return Handle used to remove the listener.
+     */
+    @NonNull
+    public ListenerRegistration addInstallStateListener(@NonNull final InstallStateListener installStateListener) {
+        synchronized (listenersLock) {
+            installStateDispatcher.addInstallStateListener(installStateListener);
+            updateManagerRegistration();
+        }
+
+        return new ListenerRegistration() {
+            @Override
+            public void remove() {
+                synchronized (listenersLock) {
+                    installStateDispatcher.removeInstallStateListener(installStateListener);
+                    updateManagerRegistration();
+                }
+            }
+        };
+    }
+
+    /**
+     * Adds an allocation-free listener for install changes.
+     * <p>
+     * As with {@link #addInstallStateListener(InstallStateListener)}, this method doesn't enable the update
+     * flows of the helper.
+     *
+     * @param installProgressListener Listener to add.
+     * @return Handle used to remove the listener.
+     */
+    @NonNull
+    public ListenerRegistration addInstallProgressListener(@NonNull final InstallProgressListener installProgressListener) {
+        synchronized (listenersLock) {
+            installStateDispatcher.addInstallProgressListener(installProgressListener);
+            updateManagerRegistration();
+        }
+
+        return new ListenerRegistration() {
+            @Override
+            public void remove() {
+                synchronized (listenersLock) {
+                    installStateDispatcher.removeInstallProgressListener(installProgressListener);
+                    updateManagerRegistration();
+                }
+            }
+        };
+    }
+
+    private void updateManagerRegistration() {
+        boolean hasListeners = installStateDispatcher.hasListeners();
+        if (hasListeners && !isAttachedToManager) {
+            isAttachedToManager = true;
+            sharedManager.addInstallStateListener(installStateUpdatedListener, isWeakListenerDispatch);
+        } else if (!hasListeners && isAttachedToManager) {
+            isAttachedToManager = false;
+            sharedManager.removeInstallStateListener(installStateUpdatedListener);
+        }
+    }
+
+    private void onInstallState(@NonNull InstallState installState) {
+        onInstallState(AppUpdateInstallState.Status.from(installState.installStatus()),
+                AppUpdateInstallState.ErrorCode.from(installState.installErrorCode()),
+                installState.bytesDownloaded(),
+                installState.totalBytesToDownload());
+    }
+
+    /**
+     * Entry point of every install state update, also used by tests and benchmarks to feed states
+     * without a Play Core {@link InstallState}.
+     */
+    void onInstallState(@NonNull AppUpdateInstallState.Status status,
+                        @NonNull AppUpdateInstallState.ErrorCode errorCode,
+                        long bytesDownloaded,
+                        long totalBytesToDownload) {
+        installStateDispatcher.dispatch(status, errorCode, bytesDownloaded, totalBytesToDownload);
+    }
+
+    /**
+     * Returns the last install state accepted for the install state listeners of this helper.
+     * <p>
+     * Listeners only receive meaningful changes: states equal to the current one and states that can't follow it
+     * (for example, {@link AppUpdateInstallState.Status#UPDATE_ACCEPTED UPDATE_ACCEPTED} received after
+     * {@link AppUpdateInstallState.Status#PENDING PENDING}) are dropped. When a throttle is set with
+     * {@link #setInstallStateThrottle(InstallStateThrottle)}, the returned state may not have reached the listeners yet.
+     *
+     * @return The current state, or {@link AppUpdateInstallState#unknown()} if no state has been accepted since the
+     * listeners were added.
+     */
+    @NonNull
+    public AppUpdateInstallState getCurrentInstallState() {
+        return installStateDispatcher.getCurrentState();
     }
 
     /**
      * Starts an app update check.
      * <p>
+     * If there's already a check in progress in this or any other helper sharing the same manager,
+     * no new request is made and the listener will receive the result of the ongoing one.
+     * <p>
      * The method must only be called after calling {@link #startListening(InstallStateListener)}.
      *
      * @param getUpdateInfoListener Callback that will emit an {@link AppUpdateInfoResult} object after finishing
@@ -126,24 +485,228 @@ public class AppUpdatesHelper {
         if (!isListening)
             throw new IllegalStateException("You must call startListening() before requesting update info");
 
-        final Task<AppUpdateInfo> appUpdateInfoTask = manager.getAppUpdateInfo();
+        AppUpdateInfoCache cache = appUpdateInfoCache;
+        if (cache != null) {
+            AppUpdateInfoResult cachedResult = cache.get();
+            if (cachedResult != null) {
+                Logs.d(TAG, "Cached update info: ", cachedResult);
+                if (appUpdateInfo == null && isActionable(cachedResult)) {
+                    hasCachedUpdateInfo = true;
+                }
+                deliverUpdateInfo(getUpdateInfoListener, cachedResult);
+                return;
+            }
+        }
+
+        UpdateInfoCircuitBreaker breaker = circuitBreaker;
+        if (breaker != null) {
+            AppUpdateInfoResult shortCircuitResult = breaker.getShortCircuitResult();
+            if (shortCircuitResult != null) {
+                Logs.d(TAG, "Circuit open, skipping update info request: ", shortCircuitResult);
+                deliverUpdateInfo(getUpdateInfoListener, shortCircuitResult);
+                return;
+            }
+        }
+
+        requestAppUpdateInfo(getUpdateInfoListener);
+    }
 
-        appUpdateInfoTask.addOnCompleteListener(new OnCompleteListener<AppUpdateInfo>() {
+    /**
+     * Starts an app update check that finishes in a bounded time.
+     * <p>
+     * The returned {@link Task} can be composed with other tasks. If the check doesn't finish before the
+     * timeout, the task completes with an unsuccessful {@link AppUpdateInfoResult} whose exception is a
+     * {@link TimeoutException}.
+     * <p>
+     * The method must only be called after calling {@link #startListening(InstallStateListener)}.
+     *
+     * @param timeout Maximum time to wait for the update info.
+     * @param unit    Unit of the timeout.
+     * @return Task that completes with the result of the check.
+     */
+    @NonNull
+    public Task<AppUpdateInfoResult> getAppUpdateInfo(long timeout, @NonNull TimeUnit unit) {
+        return getAppUpdateInfo(timeout, unit, null);
+    }
+
+    /**
+     * Starts an app update check that finishes in a bounded time and can be cancelled.
+     * <p>
+     * The returned {@link Task} can be composed with other tasks. If the check doesn't finish before the
+     * timeout, the task completes with an unsuccessful {@link AppUpdateInfoResult} whose exception is a
+     * {@link TimeoutException}. If the cancellation token is cancelled first, the task is cancelled.
+     * <p>
+     * The method must only be called after calling {@link #startListening(InstallStateListener)}.
+     *
+     * @param timeout           Maximum time to wait for the update info.
+     * @param unit              Unit of the timeout.
+     * @param cancellationToken Token used to cancel the returned task, or null if it can't be cancelled.
+     * @return Task that completes with the result of the check.
+     */
+    @NonNull
+    public Task<AppUpdateInfoResult> getAppUpdateInfo(final long timeout,
+                                                      @NonNull final TimeUnit unit,
+                                                      @Nullable CancellationToken cancellationToken) {
+        final TaskCompletionSource<AppUpdateInfoResult> taskCompletionSource = cancellationToken != null
+                ? new TaskCompletionSource<AppUpdateInfoResult>(cancellationToken)
+                : new TaskCompletionSource<AppUpdateInfoResult>();
+
+        getAppUpdateInfo(new GetUpdateInfoListener() {
             @Override
-            public void onComplete(Task<AppUpdateInfo> task) {
-                Exception exception = null;
-                if (task.isSuccessful()) {
-                    appUpdateInfo = task.getResult();
-                } else {
-                    exception = task.getException();
-                }
+            public void onGetUpdateInfoComplete(@NonNull AppUpdateInfoResult result) {
+                taskCompletionSource.trySetResult(result);
+            }
+        });
 
-                AppUpdateInfoResult result = new AppUpdateInfoResult(appUpdateInfo, exception);
-                Log.d(TAG, "Update info: " + result.toString());
+        // Late results are ignored once the timeout or the cancellation completes the task
+        final Handler handler = getMainHandler();
+        final Runnable timeoutRunnable = new Runnable() {
+            @Override
+            public void run() {
+                TimeoutException exception =
+                        new TimeoutException("Update info not received after " + timeout + " " + unit);
+                taskCompletionSource.trySetResult(AppUpdateInfoResult.failed(exception));
+            }
+        };
+        handler.postDelayed(timeoutRunnable, unit.toMillis(timeout));
 
-                getUpdateInfoListener.onGetUpdateInfoComplete(result);
+        Task<AppUpdateInfoResult> task = taskCompletionSource.getTask();
+        task.addOnCompleteListener(new OnCompleteListener<AppUpdateInfoResult>() {
+            @Override
+            public void onComplete(@NonNull Task<AppUpdateInfoResult> task) {
+                handler.removeCallbacks(timeoutRunnable);
             }
         });
+
+        return task;
+    }
+
+    /**
+     * Returns the update info needed to start an update flow. If only a cached result is known, the update info
+     * is requested first and null is returned, so the flow is started again once it's received.
+     *
+     * @param startFlow Starts the flow again.
+     * @param flowName  Name of the flow, for the error messages.
+     */
+    @Nullable
+    private AppUpdateInfo getUpdateInfoForFlow(@NonNull final Runnable startFlow, @NonNull String flowName) {
+        AppUpdateInfo info = appUpdateInfo;
+        if (info != null) return info;
+        if (!hasCachedUpdateInfo)
+            throw new IllegalStateException("You must call getAppUpdateInfo() " +
+                    "with a successful response before requesting " + flowName);
+
+        hasCachedUpdateInfo = false;
+        Logs.d(TAG, "Requesting the update info before starting ", flowName);
+        requestAppUpdateInfo(new GetUpdateInfoListener() {
+            @Override
+            public void onGetUpdateInfoComplete(@NonNull AppUpdateInfoResult result) {
+                if (appUpdateInfo != null) {
+                    startFlow.run();
+                    return;
+                }
+
+                Logs.w(TAG, "Could not get the update info to start the update flow: ", result);
+                onInstallState(AppUpdateInstallState.Status.FAILED,
+                        PlayCoreMappings.toErrorCode(result.getException()),
+                        AppUpdateInstallState.BYTES_UNKNOWN,
+                        AppUpdateInstallState.BYTES_UNKNOWN);
+            }
+        });
+        return null;
+    }
+
+    private static boolean isActionable(@NonNull AppUpdateInfoResult result) {
+        return result.getUpdateAvailability() == AppUpdateInfoResult.Availability.UPDATE_AVAILABLE ||
+                result.getUpdateAvailability() == AppUpdateInfoResult.Availability.UPDATE_DOWNLOADED;
+    }
+
+    private void requestAppUpdateInfo(@NonNull final GetUpdateInfoListener getUpdateInfoListener) {
+        requestAppUpdateInfo(getUpdateInfoListener, 1, System.nanoTime());
+    }
+
+    private void requestAppUpdateInfo(@NonNull final GetUpdateInfoListener getUpdateInfoListener,
+                                      final int attempt,
+                                      final long startNanos) {
+        // Concurrent requests from any helper sharing the manager are coalesced into a single one
+        sharedManager.requestAppUpdateInfo(new SharedAppUpdateManager.UpdateInfoCallback() {
+            @Override
+            public void onUpdateInfo(@Nullable AppUpdateInfo info, @NonNull AppUpdateInfoResult result) {
+                RetryPolicy policy = retryPolicy;
+                if (!result.isSuccessful() && policy != null && policy.shouldRetry(result.getException(), attempt)) {
+                    long delayMillis = policy.getDelayMillis(attempt);
+                    Logs.d(TAG, "Update info request failed, retrying in ms: ", delayMillis);
+
+                    getMainHandler().postAtTime(new Runnable() {
+                        @Override
+                        public void run() {
+                            requestAppUpdateInfo(getUpdateInfoListener, attempt + 1, startNanos);
+                        }
+                    }, retryToken, SystemClock.uptimeMillis() + delayMillis);
+                    return;
+                }
+
+                if (info != null) {
+                    appUpdateInfo = info;
+                }
+                Logs.d(TAG, "Update info: ", result);
+
+                MetricsSink sink = metricsSink;
+                if (sink != null) {
+                    sink.onUpdateInfoRequest(result.isSuccessful(),
+                            result.isSuccessful()
+                                    ? AppUpdateInstallState.ErrorCode.NO_ERROR
+                                    : PlayCoreMappings.toErrorCode(result.getException()),
+                            System.nanoTime() - startNanos);
+                }
+
+                UpdateInfoCircuitBreaker breaker = circuitBreaker;
+                if (breaker != null) {
+                    breaker.onResult(result);
+                }
+
+                AppUpdateInfoCache cache = appUpdateInfoCache;
+                if (cache != null) {
+                    cache.put(result);
+                }
+
+                deliverUpdateInfo(getUpdateInfoListener, result);
+            }
+        }, mappingExecutor);
+    }
+
+    private void cancelPendingRetries() {
+        Handler handler;
+        synchronized (this) {
+            handler = mainHandler;
+        }
+        // Nothing has been posted if the handler hasn't been created yet
+        if (handler != null) {
+            handler.removeCallbacksAndMessages(retryToken);
+        }
+    }
+
+    @NonNull
+    private synchronized Handler getMainHandler() {
+        if (mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+        return mainHandler;
+    }
+
+    private void deliverUpdateInfo(@NonNull final GetUpdateInfoListener getUpdateInfoListener,
+                                   @NonNull final AppUpdateInfoResult result) {
+        Executor executor = deliveryExecutor;
+        if (executor == null) {
+            getUpdateInfoListener.onGetUpdateInfoComplete(result);
+        } else {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    getUpdateInfoListener.onGetUpdateInfoComplete(result);
+                }
+            });
+        }
     }
 
     /**
@@ -154,22 +717,27 @@ public class AppUpdatesHelper {
      *
      * @param activity The {@link Activity} to link to the update.
      */
-    public void startImmediateUpdate(@NonNull Activity activity) {
+    public void startImmediateUpdate(@NonNull final Activity activity) {
         if (!isListening)
             throw new IllegalStateException("You must call startListening() " +
                     "before requesting an immediate update");
-        if (appUpdateInfo == null)
-            throw new IllegalStateException("You must call getAppUpdateInfo() " +
-                    "with a successful response before requesting an immediate update");
+        AppUpdateInfo info = getUpdateInfoForFlow(new Runnable() {
+            @Override
+            public void run() {
+                startImmediateUpdate(activity);
+            }
+        }, "an immediate update");
+        if (info == null) return;
 
+        installStateDispatcher.onUpdateFlowStarted();
         try {
-            manager.startUpdateFlowForResult(
-                    appUpdateInfo,
+            sharedManager.getManager().startUpdateFlowForResult(
+                    info,
                     AppUpdateType.IMMEDIATE,
                     activity,
                     IMMEDIATE_UPDATE_REQUEST_CODE);
         } catch (IntentSender.SendIntentException e) {
-            e.printStackTrace();
+            Logs.e(TAG, "Could not start the update flow", e);
         }
     }
 
@@ -181,22 +749,27 @@ public class AppUpdatesHelper {
      *
      * @param activity The {@link Fragment} to link to the update.
      */
-    public void startImmediateUpdate(@NonNull Fragment fragment) {
+    public void startImmediateUpdate(@NonNull final Fragment fragment) {
         if (!isListening)
             throw new IllegalStateException("You must call startListening() " +
                     "before requesting an immediate update");
-        if (appUpdateInfo == null)
-            throw new IllegalStateException("You must call getAppUpdateInfo() " +
-                    "with a successful response before requesting an immediate update");
+        AppUpdateInfo info = getUpdateInfoForFlow(new Runnable() {
+            @Override
+            public void run() {
+                startImmediateUpdate(fragment);
+            }
+        }, "an immediate update");
+        if (info == null) return;
 
+        installStateDispatcher.onUpdateFlowStarted();
         try {
-            manager.startUpdateFlowForResult(
-                    appUpdateInfo,
+            sharedManager.getManager().startUpdateFlowForResult(
+                    info,
                     AppUpdateType.IMMEDIATE,
                     fragment::startIntentSenderForResult,
                     IMMEDIATE_UPDATE_REQUEST_CODE);
         } catch (IntentSender.SendIntentException e) {
-            e.printStackTrace();
+            Logs.e(TAG, "Could not start the update flow", e);
         }
     }
 
@@ -209,22 +782,27 @@ public class AppUpdatesHelper {
      *
      * @param activity The {@link Activity} to link to the update.
      */
-    public void startFlexibleUpdate(@NonNull Activity activity) {
+    public void startFlexibleUpdate(@NonNull final Activity activity) {
         if (!isListening)
             throw new IllegalStateException("You must call startListening() " +
                     "before requesting a flexible update");
-        if (appUpdateInfo == null)
-            throw new IllegalStateException("You must call getAppUpdateInfo() " +
-                    "with a successful response before requesting a flexible update");
+        AppUpdateInfo info = getUpdateInfoForFlow(new Runnable() {
+            @Override
+            public void run() {
+                startFlexibleUpdate(activity);
+            }
+        }, "a flexible update");
+        if (info == null) return;
 
+        installStateDispatcher.onUpdateFlowStarted();
         try {
-            manager.startUpdateFlowForResult(
-                    appUpdateInfo,
+            sharedManager.getManager().startUpdateFlowForResult(
+                    info,
                     AppUpdateType.FLEXIBLE,
                     activity,
                     FLEXIBLE_UPDATE_REQUEST_CODE);
         } catch (IntentSender.SendIntentException e) {
-            e.printStackTrace();
+            Logs.e(TAG, "Could not start the update flow", e);
         }
     }
 
@@ -237,22 +815,27 @@ public class AppUpdatesHelper {
      *
      * @param activity The {@link Fragment} to link to the update.
      */
-    public void startFlexibleUpdate(@NonNull Fragment fragment) {
+    public void startFlexibleUpdate(@NonNull final Fragment fragment) {
         if (!isListening)
             throw new IllegalStateException("You must call startListening() " +
                     "before requesting a flexible update");
-        if (appUpdateInfo == null)
-            throw new IllegalStateException("You must call getAppUpdateInfo() " +
-                    "with a successful response before requesting a flexible update");
+        AppUpdateInfo info = getUpdateInfoForFlow(new Runnable() {
+            @Override
+            public void run() {
+                startFlexibleUpdate(fragment);
+            }
+        }, "a flexible update");
+        if (info == null) return;
 
+        installStateDispatcher.onUpdateFlowStarted();
         try {
-            manager.startUpdateFlowForResult(
-                    appUpdateInfo,
+            sharedManager.getManager().startUpdateFlowForResult(
+                    info,
                     AppUpdateType.FLEXIBLE,
                     fragment::startIntentSenderForResult,
                     FLEXIBLE_UPDATE_REQUEST_CODE);
         } catch (IntentSender.SendIntentException e) {
-            e.printStackTrace();
+            Logs.e(TAG, "Could not start the update flow", e);
         }
     }
 
@@ -265,48 +848,30 @@ public class AppUpdatesHelper {
      */
     public void onUpdateStatusResult(int requestCode, int resultCode) {
         if (requestCode == IMMEDIATE_UPDATE_REQUEST_CODE || requestCode == FLEXIBLE_UPDATE_REQUEST_CODE) {
-            AppUpdateInstallState state;
+            AppUpdateInstallState.Status status;
+            AppUpdateInstallState.ErrorCode errorCode;
             switch (resultCode) {
                 case RESULT_CANCELED:
                     if (requestCode == IMMEDIATE_UPDATE_REQUEST_CODE)
-                        state = new AppUpdateInstallState(
-                                AppUpdateInstallState.Status.DENIED,
-                                AppUpdateInstallState.ErrorCode.ERROR_INSTALL_NOT_ALLOWED,
-                                AppUpdateInstallState.BYTES_UNKNOWN,
-                                AppUpdateInstallState.BYTES_UNKNOWN
-                        );
+                        status = AppUpdateInstallState.Status.DENIED;
                     else
-                        state = new AppUpdateInstallState(
-                                AppUpdateInstallState.Status.CANCELED,
-                                AppUpdateInstallState.ErrorCode.ERROR_INSTALL_NOT_ALLOWED,
-                                AppUpdateInstallState.BYTES_UNKNOWN,
-                                AppUpdateInstallState.BYTES_UNKNOWN);
+                        status = AppUpdateInstallState.Status.CANCELED;
+                    errorCode = AppUpdateInstallState.ErrorCode.ERROR_INSTALL_NOT_ALLOWED;
                     break;
                 case RESULT_IN_APP_UPDATE_FAILED:
                     // We don't know why the update failed, so return an unknown error
-                    state = new AppUpdateInstallState(
-                            AppUpdateInstallState.Status.FAILED,
-                            AppUpdateInstallState.ErrorCode.ERROR_UNKNOWN,
-                            AppUpdateInstallState.BYTES_UNKNOWN,
-                            AppUpdateInstallState.BYTES_UNKNOWN
-                    );
+                    status = AppUpdateInstallState.Status.FAILED;
+                    errorCode = AppUpdateInstallState.ErrorCode.ERROR_UNKNOWN;
                     break;
                 default:
                     // If everything goes well, do stuff
-                    state = new AppUpdateInstallState(
-                            AppUpdateInstallState.Status.UPDATE_ACCEPTED,
-                            AppUpdateInstallState.ErrorCode.NO_ERROR,
-                            AppUpdateInstallState.BYTES_UNKNOWN,
-                            AppUpdateInstallState.BYTES_UNKNOWN
-                    );
+                    status = AppUpdateInstallState.Status.UPDATE_ACCEPTED;
+                    errorCode = AppUpdateInstallState.ErrorCode.NO_ERROR;
                     break;
             }
 
-            Log.d(TAG, "Update status result: " + state.toString());
-
-            if (installStateListener != null) {
-                installStateListener.onInstallStateUpdate(state);
-            }
+            // These states carry no byte information, so they are delivered as shared instances
+            onInstallState(status, errorCode, AppUpdateInstallState.BYTES_UNKNOWN, AppUpdateInstallState.BYTES_UNKNOWN);
         }
     }
 
@@ -325,6 +890,75 @@ public class AppUpdatesHelper {
             throw new IllegalStateException("You must call getAppUpdateInfo() " +
                     "before completing an update");
 
-        manager.completeUpdate();
+        sharedManager.getManager().completeUpdate();
+    }
+
+    /**
+     * Adds the listener of a lifecycle-bound {@link #startListening(LifecycleOwner, InstallStateListener)} call
+     * while the lifecycle is started.
+     * <p>
+     * The listener is wrapped, so the same listener added with another method is kept and removed independently.
+     */
+    private final class LifecycleBinding implements DefaultLifecycleObserver, InstallStateListener {
+        private final Lifecycle lifecycle;
+        private final InstallStateListener installStateListener;
+        // Only accessed from the main thread
+        private ListenerRegistration registration = null;
+        // Set by stopListening(), which can be called from any thread, so the observer is removed in its next event
+        private volatile boolean isDetached = false;
+
+        LifecycleBinding(@NonNull Lifecycle lifecycle, @NonNull InstallStateListener installStateListener) {
+            this.lifecycle = lifecycle;
+            this.installStateListener = installStateListener;
+        }
+
+        void detach() {
+            isDetached = true;
+        }
+
+        @Override
+        public void onInstallStateUpdate(@NonNull AppUpdateInstallState state) {
+            installStateListener.onInstallStateUpdate(state);
+        }
+
+        @Override
+        public void onStart(@NonNull LifecycleOwner owner) {
+            if (isDetached) {
+                lifecycle.removeObserver(this);
+                return;
+            }
+            registration = addInstallStateListener(this);
+        }
+
+        @Override
+        public void onStop(@NonNull LifecycleOwner owner) {
+            removeRegistration();
+            if (isDetached) {
+                lifecycle.removeObserver(this);
+            }
+        }
+
+        @Override
+        public void onDestroy(@NonNull LifecycleOwner owner) {
+            lifecycle.removeObserver(this);
+            removeRegistration();
+            boolean isStillListening;
+            synchronized (listenersLock) {
+                // Other screens or direct listeners may still rely on the update flows
+                lifecycleBindings.remove(this);
+                updateListening();
+                isStillListening = isListening;
+            }
+            if (!isStillListening) {
+                cancelPendingRetries();
+            }
+        }
+
+        private void removeRegistration() {
+            if (registration != null) {
+                registration.remove();
+                registration = null;
+            }
+        }
     }
 }
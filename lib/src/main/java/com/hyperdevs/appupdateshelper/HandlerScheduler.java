@@ -0,0 +1,50 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+/**
+ * {@link Scheduler} that posts its tasks to a {@link Handler}.
+ */
+final class HandlerScheduler implements Scheduler {
+    private final Handler handler;
+
+    HandlerScheduler(@NonNull Handler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public long uptimeMillis() {
+        return SystemClock.uptimeMillis();
+    }
+
+    @Override
+    public void postAtTime(@NonNull Runnable task, long uptimeMillis) {
+        handler.postAtTime(task, uptimeMillis);
+    }
+
+    @Override
+    public void removeCallbacks(@NonNull Runnable task) {
+        handler.removeCallbacks(task);
+    }
+}
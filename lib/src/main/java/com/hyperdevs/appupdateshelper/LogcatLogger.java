@@ -0,0 +1,72 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import android.content.Context;
+import android.content.pm.ApplicationInfo;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * {@link AppUpdatesLogger} that writes messages to logcat.
+ */
+public final class LogcatLogger implements AppUpdatesLogger {
+    private final int minLevel;
+
+    /**
+     * Creates a logger that writes every message.
+     */
+    public LogcatLogger() {
+        this(VERBOSE);
+    }
+
+    /**
+     * Creates a logger that writes messages with a level equal or greater than a given one.
+     *
+     * @param minLevel Minimum level of the written messages.
+     */
+    public LogcatLogger(int minLevel) {
+        this.minLevel = minLevel;
+    }
+
+    /**
+     * Enables logging to logcat for debuggable apps, unless a logger has been set explicitly.
+     */
+    static void setAsDefaultIfDebuggable(@NonNull Context context) {
+        if ((context.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0) {
+            Logs.setDefaultLogger(new LogcatLogger(DEBUG));
+        }
+    }
+
+    @Override
+    public boolean isLoggable(int level) {
+        return level >= minLevel;
+    }
+
+    @Override
+    public void log(int level, @NonNull String tag, @NonNull String message, @Nullable Throwable throwable) {
+        if (throwable != null) {
+            Log.println(level, tag, message + '\n' + Log.getStackTraceString(throwable));
+        } else {
+            Log.println(level, tag, message);
+        }
+    }
+}
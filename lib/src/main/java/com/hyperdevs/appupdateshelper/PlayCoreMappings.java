@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import com.google.android.play.core.appupdate.AppUpdateInfo;
+import com.google.android.play.core.install.InstallException;
+import com.google.android.play.core.install.model.AppUpdateType;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Conversions from Play Core types to the platform-independent types of the core module.
+ */
+final class PlayCoreMappings {
+    private PlayCoreMappings() {
+    }
+
+    /**
+     * Builds the result of an update info request.
+     *
+     * @param info      Update info returned by the request, or null if it failed.
+     * @param exception Exception thrown by the request, or null if it succeeded.
+     */
+    @NonNull
+    static AppUpdateInfoResult toResult(@Nullable AppUpdateInfo info, @Nullable Exception exception) {
+        if (info == null) return AppUpdateInfoResult.failed(exception);
+
+        Integer clientVersionStalenessDays = info.clientVersionStalenessDays();
+        //noinspection ConstantConditions
+        return new AppUpdateInfoResult(
+                exception == null,
+                info.availableVersionCode(),
+                AppUpdateInfoResult.Availability.from(info.updateAvailability(), info.installStatus()),
+                info.updatePriority(),
+                info.isUpdateTypeAllowed(AppUpdateType.FLEXIBLE),
+                info.isUpdateTypeAllowed(AppUpdateType.IMMEDIATE),
+                clientVersionStalenessDays != null
+                        ? clientVersionStalenessDays
+                        : AppUpdateInfoResult.VERSION_STALENESS_UNKNOWN,
+                exception);
+    }
+
+    /**
+     * Returns the error code of a failed request, or {@link AppUpdateInstallState.ErrorCode#ERROR_UNKNOWN}
+     * if it didn't fail with an {@link InstallException}.
+     */
+    @NonNull
+    static AppUpdateInstallState.ErrorCode toErrorCode(@Nullable Exception exception) {
+        if (exception instanceof InstallException) {
+            return AppUpdateInstallState.ErrorCode.from(((InstallException) exception).getErrorCode());
+        }
+        return AppUpdateInstallState.ErrorCode.ERROR_UNKNOWN;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.Nullable;
+
+/**
+ * Policy used to retry failed update info requests with exponential backoff and full jitter.
+ * <p>
+ * Permanent failures, such as {@link AppUpdateInstallState.ErrorCode#ERROR_APP_NOT_OWNED ERROR_APP_NOT_OWNED} or
+ * {@link AppUpdateInstallState.ErrorCode#ERROR_PLAY_STORE_NOT_FOUND ERROR_PLAY_STORE_NOT_FOUND}, are never
+ * retried. Any other failure is retried until the maximum number of attempts is reached, waiting a random
+ * time between zero and an exponentially growing, capped delay before each retry.
+ * <p>
+ * Enable it with {@link AppUpdatesHelper#setRetryPolicy(RetryPolicy)}.
+ */
+public final class RetryPolicy {
+    public static final int DEFAULT_MAX_ATTEMPTS = 3;
+    public static final long DEFAULT_BASE_DELAY_MILLIS = 500;
+    public static final long DEFAULT_MAX_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * Creates a retry policy with the default values.
+     */
+    public RetryPolicy() {
+        this(DEFAULT_MAX_ATTEMPTS, DEFAULT_BASE_DELAY_MILLIS, DEFAULT_MAX_DELAY_MILLIS);
+    }
+
+    /**
+     * Creates a retry policy.
+     *
+     * @param maxAttempts     Maximum number of attempts, including the first one.
+     * @param baseDelayMillis Upper bound of the delay before the first retry, in milliseconds. It's doubled on
+     *                        every following retry.
+     * @param maxDelayMillis  Maximum upper bound of the delay before any retry, in milliseconds.
+     */
+    public RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        if (maxAttempts < 1)
+            throw new IllegalArgumentException("There must be at least one attempt");
+        if (baseDelayMillis < 0 || maxDelayMillis < baseDelayMillis)
+            throw new IllegalArgumentException("Delays must not be negative and the maximum delay must not be lower " +
+                    "than the base delay");
+
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    public int getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public long getBaseDelayMillis() {
+        return baseDelayMillis;
+    }
+
+    public long getMaxDelayMillis() {
+        return maxDelayMillis;
+    }
+
+    /**
+     * Checks if a failed attempt should be retried.
+     *
+     * @param exception Exception of the failed attempt.
+     * @param attempt   Number of the failed attempt, starting from 1.
+     */
+    public boolean shouldRetry(@Nullable Exception exception, int attempt) {
+        return attempt < maxAttempts && isRetryable(exception);
+    }
+
+    /**
+     * Checks if an exception is transient, so retrying the request may succeed.
+     *
+     * @param exception Exception to check.
+     */
+    public static boolean isRetryable(@Nullable Exception exception) {
+        return !PlayCoreMappings.toErrorCode(exception).isPermanent();
+    }
+
+    /**
+     * Returns the delay before retrying a failed attempt.
+     *
+     * @param attempt Number of the failed attempt, starting from 1.
+     */
+    public long getDelayMillis(int attempt) {
+        return getDelayMillis(attempt, ThreadLocalRandom.current().nextDouble());
+    }
+
+    long getDelayMillis(int attempt, double random) {
+        // Avoid overflowing the shift: past this point the delay is capped anyway
+        int exponent = Math.min(attempt - 1, 30);
+        long upperBound = Math.min(maxDelayMillis, baseDelayMillis << exponent);
+        if (upperBound < 0) upperBound = maxDelayMillis;
+        return (long) (random * (upperBound + 1));
+    }
+}
@@ -0,0 +1,406 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.play.core.appupdate.AppUpdateInfo;
+import com.google.android.play.core.appupdate.AppUpdateManager;
+import com.google.android.play.core.appupdate.AppUpdateManagerFactory;
+import com.google.android.play.core.install.InstallState;
+import com.google.android.play.core.install.InstallStateUpdatedListener;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+
+/**
+ * Wrapper around an {@link AppUpdateManager} that can be shared between several {@link AppUpdatesHelper}s.
+ * <p>
+ * A single {@link InstallStateUpdatedListener} is registered in the manager while there's at least one attached
+ * listener, and concurrent update info requests are coalesced into a single one.
+ */
+final class SharedAppUpdateManager {
+    private static final long PREFETCHED_RESULT_MAX_AGE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private static SharedAppUpdateManager processInstance = null;
+    // Configured by the app for the checks made without a helper
+    @Nullable
+    private static volatile AppUpdateInfoCache backgroundCheckCache = null;
+    @Nullable
+    private static volatile UpdateInfoCircuitBreaker backgroundCheckCircuitBreaker = null;
+
+    @Nullable
+    private final Context context;
+    private volatile AppUpdateManager manager;
+    // Elements are either listeners or WeakListeners wrapping them
+    private final ListenerSet<Object> installStateListeners = new ListenerSet<>();
+    private final InstallStateUpdatedListener dispatchingListener = new InstallStateUpdatedListener() {
+        @Override
+        public void onStateUpdate(InstallState installState) {
+            boolean hasDeadListeners = false;
+            Object[] listeners = installStateListeners.getListeners();
+            for (int i = 0; i < listeners.length; i++) {
+                Object entry = listeners[i];
+                InstallStateUpdatedListener listener = entry instanceof WeakListener
+                        ? ((WeakListener) entry).get()
+                        : (InstallStateUpdatedListener) entry;
+                if (listener != null) {
+                    listener.onStateUpdate(installState);
+                } else {
+                    hasDeadListeners = true;
+                }
+            }
+
+            if (hasDeadListeners) {
+                removeDeadListeners();
+            }
+        }
+    };
+
+    private final List<PendingCallback> pendingUpdateInfoCallbacks = new ArrayList<>();
+    private boolean isRequestingUpdateInfo = false;
+    private boolean isPrefetchingUpdateInfo = false;
+    @Nullable
+    private UpdateInfoCircuitBreaker prefetchCircuitBreaker = null;
+    @Nullable
+    private AppUpdateInfo prefetchedInfo = null;
+    @Nullable
+    private AppUpdateInfoResult prefetchedResult = null;
+    private long prefetchedAtMillis = 0;
+    @Nullable
+    private Handler mainHandler = null;
+
+    /**
+     * Returns the instance shared by the whole process, creating it if needed. The {@link AppUpdateManager}
+     * itself isn't created until it's used.
+     */
+    @NonNull
+    static SharedAppUpdateManager get(@NonNull Context context) {
+        synchronized (SharedAppUpdateManager.class) {
+            if (processInstance == null) {
+                processInstance = new SharedAppUpdateManager(context.getApplicationContext(), null);
+            }
+            return processInstance;
+        }
+    }
+
+    /**
+     * Drops the instance shared by the whole process, so the next call to {@link #get(Context)} creates a new one.
+     * Only meant for benchmarks that measure the cold creation cost.
+     */
+    @VisibleForTesting
+    static void resetProcessInstance() {
+        synchronized (SharedAppUpdateManager.class) {
+            processInstance = null;
+        }
+    }
+
+    static void setBackgroundCheckConfiguration(@Nullable AppUpdateInfoCache cache,
+                                                @Nullable UpdateInfoCircuitBreaker circuitBreaker) {
+        backgroundCheckCache = cache;
+        backgroundCheckCircuitBreaker = circuitBreaker;
+    }
+
+    @Nullable
+    static AppUpdateInfoCache getBackgroundCheckCache() {
+        return backgroundCheckCache;
+    }
+
+    @Nullable
+    static UpdateInfoCircuitBreaker getBackgroundCheckCircuitBreaker() {
+        return backgroundCheckCircuitBreaker;
+    }
+
+    SharedAppUpdateManager(@NonNull AppUpdateManager manager) {
+        this(null, manager);
+    }
+
+    private SharedAppUpdateManager(@Nullable Context context, @Nullable AppUpdateManager manager) {
+        this.context = context;
+        this.manager = manager;
+    }
+
+    /**
+     * Returns the wrapped manager, creating it on the first call if needed.
+     */
+    @NonNull
+    AppUpdateManager getManager() {
+        AppUpdateManager current = manager;
+        if (current == null) {
+            synchronized (this) {
+                current = manager;
+                if (current == null) {
+                    //noinspection ConstantConditions
+                    current = AppUpdateManagerFactory.create(context);
+                    manager = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Attaches a listener to the install state updates of the manager. The first attached listener
+     * registers the shared listener in the manager.
+     *
+     * @param listener Listener to attach.
+     * @param weak     Whether the manager should only keep a weak reference to the listener. Weak listeners
+     *                 are detached automatically once they are garbage collected.
+     */
+    void addInstallStateListener(@NonNull InstallStateUpdatedListener listener, boolean weak) {
+        synchronized (installStateListeners) {
+            if (findEntry(listener) != null) return;
+            installStateListeners.add(weak ? new WeakListener(listener) : listener);
+            if (installStateListeners.getListeners().length == 1) {
+                getManager().registerListener(dispatchingListener);
+            }
+        }
+    }
+
+    /**
+     * Detaches a listener from the install state updates of the manager. The last detached listener
+     * unregisters the shared listener from the manager.
+     */
+    void removeInstallStateListener(@NonNull InstallStateUpdatedListener listener) {
+        synchronized (installStateListeners) {
+            Object entry = findEntry(listener);
+            if (entry != null && installStateListeners.remove(entry) && installStateListeners.isEmpty()) {
+                getManager().unregisterListener(dispatchingListener);
+            }
+        }
+    }
+
+    @Nullable
+    private Object findEntry(@NonNull InstallStateUpdatedListener listener) {
+        for (Object entry : installStateListeners.getListeners()) {
+            if (entry == listener || (entry instanceof WeakListener && ((WeakListener) entry).get() == listener)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void removeDeadListeners() {
+        synchronized (installStateListeners) {
+            if (installStateListeners.isEmpty()) return;
+            for (Object entry : installStateListeners.getListeners()) {
+                if (entry instanceof WeakListener && ((WeakListener) entry).get() == null) {
+                    installStateListeners.remove(entry);
+                }
+            }
+            if (installStateListeners.isEmpty()) {
+                getManager().unregisterListener(dispatchingListener);
+            }
+        }
+    }
+
+    /**
+     * Requests the update info to the manager. If there's a request in flight, the callback will receive
+     * its result instead of starting a new one, and if there's a prefetched result, the callback will
+     * receive it right away.
+     *
+     * @param callback        Callback to notify when the request finishes.
+     * @param mappingExecutor Executor used to notify the callback, or null to use the main thread. It's also
+     *                        used to build the result if a new request is started. Callbacks coalesced into
+     *                        a request started with a different executor are still notified on their own.
+     */
+    void requestAppUpdateInfo(@NonNull final UpdateInfoCallback callback, @Nullable final Executor mappingExecutor) {
+        final AppUpdateInfo info;
+        final AppUpdateInfoResult result;
+        synchronized (pendingUpdateInfoCallbacks) {
+            result = takePrefetchedResult();
+            info = prefetchedInfo;
+            prefetchedInfo = null;
+            if (result == null) {
+                pendingUpdateInfoCallbacks.add(new PendingCallback(callback, mappingExecutor));
+                if (isRequestingUpdateInfo) return;
+                isRequestingUpdateInfo = true;
+            }
+        }
+
+        if (result == null) {
+            startUpdateInfoRequest(mappingExecutor);
+        } else if (mappingExecutor != null) {
+            mappingExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    callback.onUpdateInfo(info, result);
+                }
+            });
+        } else {
+            callback.onUpdateInfo(info, result);
+        }
+    }
+
+    /**
+     * Requests the update info in advance and keeps the result, so the next call to
+     * {@link #requestAppUpdateInfo(UpdateInfoCallback, Executor)} receives it without waiting.
+     * Nothing is done if there's already a request in flight or a prefetched result.
+     * <p>
+     * If the app configured a cache or a circuit breaker for the background checks, nothing is done either while
+     * the cached result is valid or the circuit is open, and the breaker is updated with the result if nobody
+     * else receives it. They read their state from disk, so this must not be called from the main thread.
+     */
+    void prefetchAppUpdateInfo() {
+        AppUpdateInfoCache cache = backgroundCheckCache;
+        if (cache != null && cache.get() != null) return;
+
+        UpdateInfoCircuitBreaker circuitBreaker = backgroundCheckCircuitBreaker;
+        synchronized (pendingUpdateInfoCallbacks) {
+            if (isRequestingUpdateInfo || prefetchedResult != null) return;
+            // Checked last, since allowing a probe request means that its result must be reported
+            if (circuitBreaker != null && circuitBreaker.getShortCircuitResult() != null) return;
+            isRequestingUpdateInfo = true;
+            isPrefetchingUpdateInfo = true;
+            prefetchCircuitBreaker = circuitBreaker;
+        }
+
+        startUpdateInfoRequest(null);
+    }
+
+    @Nullable
+    private AppUpdateInfoResult takePrefetchedResult() {
+        AppUpdateInfoResult result = prefetchedResult;
+        prefetchedResult = null;
+        // Old results may be outdated, so a new request is made instead
+        if (result != null && SystemClock.elapsedRealtime() - prefetchedAtMillis > PREFETCHED_RESULT_MAX_AGE_MILLIS) {
+            return null;
+        }
+        return result;
+    }
+
+    private void startUpdateInfoRequest(@Nullable final Executor mappingExecutor) {
+        Task<AppUpdateInfo> task = getManager().getAppUpdateInfo();
+        OnCompleteListener<AppUpdateInfo> onCompleteListener = new OnCompleteListener<AppUpdateInfo>() {
+            @Override
+            public void onComplete(Task<AppUpdateInfo> task) {
+                AppUpdateInfo info = null;
+                Exception exception = null;
+                if (task.isSuccessful()) {
+                    info = task.getResult();
+                } else {
+                    exception = task.getException();
+                }
+
+                final AppUpdateInfo finalInfo = info;
+                final AppUpdateInfoResult result = PlayCoreMappings.toResult(info, exception);
+
+                PendingCallback[] callbacks;
+                UpdateInfoCircuitBreaker circuitBreaker = null;
+                synchronized (pendingUpdateInfoCallbacks) {
+                    callbacks = pendingUpdateInfoCallbacks.toArray(new PendingCallback[0]);
+                    pendingUpdateInfoCallbacks.clear();
+                    isRequestingUpdateInfo = false;
+
+                    // A prefetched result is only kept if nobody has received it yet. Failed requests
+                    // are not kept so that the next call tries again.
+                    if (isPrefetchingUpdateInfo && callbacks.length == 0) {
+                        if (result.isSuccessful()) {
+                            prefetchedInfo = info;
+                            prefetchedResult = result;
+                            prefetchedAtMillis = SystemClock.elapsedRealtime();
+                        }
+                        // The helpers report the results they receive, so only the unused ones are reported here
+                        circuitBreaker = prefetchCircuitBreaker;
+                    }
+                    isPrefetchingUpdateInfo = false;
+                    prefetchCircuitBreaker = null;
+                }
+
+                if (circuitBreaker != null) {
+                    circuitBreaker.onResult(result);
+                }
+
+                for (final PendingCallback pending : callbacks) {
+                    if (pending.executor == mappingExecutor) {
+                        pending.callback.onUpdateInfo(finalInfo, result);
+                        continue;
+                    }
+
+                    Runnable notifyRunnable = new Runnable() {
+                        @Override
+                        public void run() {
+                            pending.callback.onUpdateInfo(finalInfo, result);
+                        }
+                    };
+                    if (pending.executor != null) {
+                        pending.executor.execute(notifyRunnable);
+                    } else {
+                        getMainHandler().post(notifyRunnable);
+                    }
+                }
+            }
+        };
+
+        if (mappingExecutor != null) {
+            task.addOnCompleteListener(mappingExecutor, onCompleteListener);
+        } else {
+            task.addOnCompleteListener(onCompleteListener);
+        }
+    }
+
+    @NonNull
+    private synchronized Handler getMainHandler() {
+        if (mainHandler == null) {
+            mainHandler = new Handler(Looper.getMainLooper());
+        }
+        return mainHandler;
+    }
+
+    private static final class PendingCallback {
+        @NonNull
+        final UpdateInfoCallback callback;
+        @Nullable
+        final Executor executor;
+
+        PendingCallback(@NonNull UpdateInfoCallback callback, @Nullable Executor executor) {
+            this.callback = callback;
+            this.executor = executor;
+        }
+    }
+
+    private static final class WeakListener extends WeakReference<InstallStateUpdatedListener> {
+        WeakListener(@NonNull InstallStateUpdatedListener listener) {
+            super(listener);
+        }
+    }
+
+    /**
+     * Callback for {@link #requestAppUpdateInfo(UpdateInfoCallback, Executor)}.
+     */
+    interface UpdateInfoCallback {
+        /**
+         * @param info   Raw update info, or null if the request failed
+         * @param result Result of the request, shared between all the callbacks of the same request
+         */
+        void onUpdateInfo(@Nullable AppUpdateInfo info, @NonNull AppUpdateInfoResult result);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.google.android.play.core.install.InstallException;
+
+import java.util.concurrent.TimeUnit;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Circuit breaker that stops querying the Play Store for update info on devices where it always fails
+ * permanently, for example sideloaded installs or devices without the Play Store.
+ * <p>
+ * After a number of consecutive permanent failures the circuit opens, and update info requests immediately
+ * return a failed {@link AppUpdateInfoResult} with the last error instead of querying the Play Store. Once the
+ * cooldown elapses, a single request is allowed as a probe: if it succeeds the circuit closes, otherwise it opens
+ * again for another cooldown. Transient failures, like network errors, mean that the Play Store is there, so
+ * they reset the count of consecutive permanent failures.
+ * <p>
+ * The state, including whether a probe is in flight, is stored on disk and shared by every instance, so it
+ * survives process restarts. If a probe never finishes, for example because the process dies, another one is
+ * allowed after another cooldown.
+ * <p>
+ * Enable it with {@link AppUpdatesHelper#setCircuitBreaker(UpdateInfoCircuitBreaker)}.
+ */
+public class UpdateInfoCircuitBreaker {
+    public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+    public static final long DEFAULT_COOLDOWN_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private static final String TAG = "UpdateInfoCircuitBreaker";
+
+    private static final String PREFERENCES_NAME = "com.hyperdevs.appupdateshelper.circuit_breaker";
+
+    private static final String KEY_CONSECUTIVE_FAILURES = "consecutive_failures";
+    private static final String KEY_OPENED_AT = "opened_at";
+    private static final String KEY_ERROR_CODE = "error_code";
+    private static final String KEY_IS_PROBING = "is_probing";
+
+    private static final long NOT_OPEN = -1;
+
+    // Instances share the same storage, so they also share the lock
+    private static final Object LOCK = new Object();
+
+    private final SharedPreferences preferences;
+    private final int failureThreshold;
+    private final long cooldownMillis;
+
+    /**
+     * Creates a circuit breaker with the default values.
+     *
+     * @param context Context used to access the circuit breaker storage.
+     */
+    public UpdateInfoCircuitBreaker(@NonNull Context context) {
+        this(context, DEFAULT_FAILURE_THRESHOLD, DEFAULT_COOLDOWN_MILLIS);
+    }
+
+    /**
+     * Creates a circuit breaker.
+     *
+     * @param context          Context used to access the circuit breaker storage.
+     * @param failureThreshold Number of consecutive permanent failures that open the circuit.
+     * @param cooldownMillis   Time in milliseconds the circuit stays open before allowing a probe request.
+     */
+    public UpdateInfoCircuitBreaker(@NonNull Context context, int failureThreshold, long cooldownMillis) {
+        if (failureThreshold < 1)
+            throw new IllegalArgumentException("The failure threshold must be at least 1");
+        if (cooldownMillis < 0)
+            throw new IllegalArgumentException("The cooldown must not be negative");
+
+        this.preferences = context.getApplicationContext().getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        this.failureThreshold = failureThreshold;
+        this.cooldownMillis = cooldownMillis;
+    }
+
+    /**
+     * Checks if the circuit is open.
+     */
+    public boolean isOpen() {
+        synchronized (LOCK) {
+            return preferences.getLong(KEY_OPENED_AT, NOT_OPEN) != NOT_OPEN;
+        }
+    }
+
+    /**
+     * Closes the circuit and forgets any previous failure.
+     */
+    public void reset() {
+        synchronized (LOCK) {
+            preferences.edit().clear().apply();
+        }
+    }
+
+    /**
+     * Returns the result to use instead of querying the Play Store, or null if a request is allowed.
+     * <p>
+     * When the cooldown has elapsed, the first call returns null so a probe request can be made, and the
+     * following calls keep returning the failed result until the probe finishes or another cooldown elapses.
+     */
+    @Nullable
+    AppUpdateInfoResult getShortCircuitResult() {
+        synchronized (LOCK) {
+            long openedAt = preferences.getLong(KEY_OPENED_AT, NOT_OPEN);
+            if (openedAt == NOT_OPEN) return null;
+
+            long now = System.currentTimeMillis();
+            long elapsed = now - openedAt;
+            // A negative time means that the clock was changed, so consider the cooldown elapsed
+            if (elapsed < 0 || elapsed >= cooldownMillis) {
+                // The cooldown starts again, so no other probe is allowed while this one is in flight
+                preferences.edit()
+                        .putLong(KEY_OPENED_AT, now)
+                        .putBoolean(KEY_IS_PROBING, true)
+                        .apply();
+                Logs.d(TAG, "Cooldown elapsed, allowing a probe request", null);
+                return null;
+            }
+
+            AppUpdateInstallState.ErrorCode errorCode = AppUpdateInstallState.ErrorCode.from(
+                    preferences.getInt(KEY_ERROR_CODE, AppUpdateInstallState.ErrorCode.ERROR_UNKNOWN.getValue()));
+            return AppUpdateInfoResult.failed(new InstallException(errorCode.getValue()));
+        }
+    }
+
+    /**
+     * Updates the state of the circuit with the result of a request made to the Play Store.
+     */
+    void onResult(@NonNull AppUpdateInfoResult result) {
+        synchronized (LOCK) {
+            boolean wasProbing = preferences.getBoolean(KEY_IS_PROBING, false);
+
+            if (result.isSuccessful()) {
+                if (isOpen() || preferences.getInt(KEY_CONSECUTIVE_FAILURES, 0) > 0) {
+                    preferences.edit().clear().apply();
+                }
+                return;
+            }
+
+            AppUpdateInstallState.ErrorCode errorCode = PlayCoreMappings.toErrorCode(result.getException());
+            if (!errorCode.isPermanent()) {
+                if (wasProbing) {
+                    // The probe didn't tell us anything, so wait for another cooldown before the next one
+                    preferences.edit()
+                            .putLong(KEY_OPENED_AT, System.currentTimeMillis())
+                            .remove(KEY_IS_PROBING)
+                            .apply();
+                } else if (!isOpen() && preferences.getInt(KEY_CONSECUTIVE_FAILURES, 0) > 0) {
+                    // The permanent failures are no longer consecutive
+                    preferences.edit().remove(KEY_CONSECUTIVE_FAILURES).apply();
+                }
+                return;
+            }
+
+            int consecutiveFailures = preferences.getInt(KEY_CONSECUTIVE_FAILURES, 0) + 1;
+            SharedPreferences.Editor editor = preferences.edit()
+                    .putInt(KEY_CONSECUTIVE_FAILURES, consecutiveFailures)
+                    .putInt(KEY_ERROR_CODE, errorCode.getValue())
+                    .remove(KEY_IS_PROBING);
+            if (wasProbing || consecutiveFailures >= failureThreshold) {
+                Logs.w(TAG, "Opening circuit after permanent failure: ", errorCode);
+                editor.putLong(KEY_OPENED_AT, System.currentTimeMillis());
+            }
+            editor.apply();
+        }
+    }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import android.app.Activity;
+
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.play.core.appupdate.AppUpdateInfo;
+import com.google.android.play.core.appupdate.AppUpdateManager;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that cached results are used at cold start and that update flows can still be started from them.
+ */
+public class AppUpdateInfoCacheTest {
+    private static final AppUpdateInfoResult CACHED_UPDATE_AVAILABLE = new AppUpdateInfoResult(
+            true, 2, AppUpdateInfoResult.Availability.UPDATE_AVAILABLE, 0, true, true, 1, null);
+    private static final AppUpdateInfoResult CACHED_NO_UPDATE = new AppUpdateInfoResult(
+            true, 1, AppUpdateInfoResult.Availability.UPDATE_NOT_AVAILABLE, 0, false, false, 0, null);
+
+    private final List<AppUpdateInfoResult> results = new ArrayList<>();
+
+    private AppUpdateManager manager;
+    private AppUpdateInfo info;
+    private AppUpdateInfoCache cache;
+    private AppUpdatesHelper helper;
+
+    @Before
+    public void setUp() {
+        manager = mock(AppUpdateManager.class);
+        info = mock(AppUpdateInfo.class);
+        Task<AppUpdateInfo> task = createCompletedTask(info);
+        when(manager.getAppUpdateInfo()).thenReturn(task);
+
+        cache = mock(AppUpdateInfoCache.class);
+        helper = new AppUpdatesHelper(manager);
+        helper.setAppUpdateInfoCache(cache);
+        helper.startListening(new InstallStateListener() {
+            @Override
+            public void onInstallStateUpdate(@NonNull AppUpdateInstallState state) {
+                // Not needed
+            }
+        });
+    }
+
+    @Test
+    public void cached_update_available_result_can_start_a_flow_from_the_listener() throws Exception {
+        when(cache.get()).thenReturn(CACHED_UPDATE_AVAILABLE);
+        final Activity activity = mock(Activity.class);
+
+        helper.getAppUpdateInfo(new GetUpdateInfoListener() {
+            @Override
+            public void onGetUpdateInfoComplete(@NonNull AppUpdateInfoResult result) {
+                results.add(result);
+                helper.startFlexibleUpdate(activity);
+            }
+        });
+
+        assertEquals(1, results.size());
+        // The update info is only requested when the flow starts
+        verify(manager, times(1)).getAppUpdateInfo();
+        verify(manager).startUpdateFlowForResult(eq(info), anyInt(), eq(activity), anyInt());
+    }
+
+    @Test
+    public void cached_update_available_result_skips_the_request_at_cold_start() {
+        when(cache.get()).thenReturn(CACHED_UPDATE_AVAILABLE);
+
+        helper.getAppUpdateInfo(new RecordingListener());
+
+        verify(manager, never()).getAppUpdateInfo();
+        assertSame(CACHED_UPDATE_AVAILABLE, results.get(0));
+    }
+
+    @Test
+    public void cached_update_available_result_is_used_once_the_update_info_is_known() {
+        when(cache.get()).thenReturn(null, CACHED_UPDATE_AVAILABLE);
+
+        helper.getAppUpdateInfo(new RecordingListener());
+        helper.getAppUpdateInfo(new RecordingListener());
+
+        verify(manager, times(1)).getAppUpdateInfo();
+        assertSame(CACHED_UPDATE_AVAILABLE, results.get(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void flows_need_an_update_info_result() {
+        when(cache.get()).thenReturn(CACHED_NO_UPDATE);
+        helper.getAppUpdateInfo(new RecordingListener());
+
+        helper.startFlexibleUpdate(mock(Activity.class));
+    }
+
+    @Test
+    public void cached_no_update_result_skips_the_request() {
+        when(cache.get()).thenReturn(CACHED_NO_UPDATE);
+
+        helper.getAppUpdateInfo(new RecordingListener());
+
+        verify(manager, never()).getAppUpdateInfo();
+        assertSame(CACHED_NO_UPDATE, results.get(0));
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private static Task<AppUpdateInfo> createCompletedTask(@NonNull AppUpdateInfo info) {
+        final Task<AppUpdateInfo> task = mock(Task.class);
+        when(task.isSuccessful()).thenReturn(true);
+        when(task.getResult()).thenReturn(info);
+        when(task.addOnCompleteListener(any(OnCompleteListener.class))).thenAnswer(new Answer<Task<AppUpdateInfo>>() {
+            @Override
+            public Task<AppUpdateInfo> answer(InvocationOnMock invocation) {
+                invocation.<OnCompleteListener<AppUpdateInfo>>getArgument(0).onComplete(task);
+                return task;
+            }
+        });
+        return task;
+    }
+
+    private final class RecordingListener implements GetUpdateInfoListener {
+        @Override
+        public void onGetUpdateInfoComplete(@NonNull AppUpdateInfoResult result) {
+            results.add(result);
+        }
+    }
+}
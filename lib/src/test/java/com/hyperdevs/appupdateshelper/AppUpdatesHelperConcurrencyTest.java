@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.play.core.appupdate.AppUpdateInfo;
+import com.google.android.play.core.appupdate.AppUpdateManager;
+import com.google.android.play.core.install.InstallState;
+import com.google.android.play.core.install.InstallStateUpdatedListener;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Hammers a helper from several threads while a fake manager completes update info requests and
+ * dispatches install states from its own thread, like Play Core does.
+ */
+public class AppUpdatesHelperConcurrencyTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 5_000;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private final AtomicInteger registeredListeners = new AtomicInteger();
+    private final AtomicInteger maxRegisteredListeners = new AtomicInteger();
+    private final AtomicReference<InstallStateUpdatedListener> dispatchingListener = new AtomicReference<>();
+    private final AtomicInteger requestedUpdateInfo = new AtomicInteger();
+    private final AtomicInteger receivedUpdateInfo = new AtomicInteger();
+    private final List<Throwable> errors = new ArrayList<>();
+
+    private ExecutorService playCoreThread;
+    private AppUpdateManager manager;
+    private InstallState installState;
+
+    @Before
+    public void setUp() {
+        playCoreThread = Executors.newSingleThreadExecutor();
+        manager = mock(AppUpdateManager.class);
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                dispatchingListener.set(invocation.<InstallStateUpdatedListener>getArgument(0));
+                int registered = registeredListeners.incrementAndGet();
+                maxRegisteredListeners.accumulateAndGet(registered, Math::max);
+                return null;
+            }
+        }).when(manager).registerListener(any(InstallStateUpdatedListener.class));
+
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                registeredListeners.decrementAndGet();
+                return null;
+            }
+        }).when(manager).unregisterListener(any(InstallStateUpdatedListener.class));
+
+        // Everything is stubbed up front, since stubbing isn't thread safe
+        final Task<AppUpdateInfo> task = createCompletingTask();
+        when(manager.getAppUpdateInfo()).thenReturn(task);
+        installState = mock(InstallState.class);
+    }
+
+    @After
+    public void tearDown() {
+        playCoreThread.shutdownNow();
+    }
+
+    @Test
+    public void stop_listening_before_start_listening_does_not_touch_manager() {
+        AppUpdatesHelper helper = new AppUpdatesHelper(manager);
+        helper.stopListening();
+
+        verify(manager, never()).unregisterListener(any(InstallStateUpdatedListener.class));
+    }
+
+    @Test
+    public void concurrent_calls_keep_helper_consistent() throws InterruptedException {
+        final AppUpdatesHelper helper = new AppUpdatesHelper(manager);
+        final InstallStateListener installStateListener = new InstallStateListener() {
+            @Override
+            public void onInstallStateUpdate(@NonNull AppUpdateInstallState state) {
+                // Nothing to do, only the dispatch itself is tested
+            }
+        };
+        final GetUpdateInfoListener getUpdateInfoListener = new GetUpdateInfoListener() {
+            @Override
+            public void onGetUpdateInfoComplete(@NonNull AppUpdateInfoResult result) {
+                receivedUpdateInfo.incrementAndGet();
+            }
+        };
+
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch finished = new CountDownLatch(THREADS);
+        for (int i = 0; i < THREADS; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                            runRandomOperation(helper, installStateListener, getUpdateInfoListener);
+                        }
+                    } catch (Throwable e) {
+                        addError(e);
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }).start();
+        }
+
+        start.countDown();
+        assertTrue("Stress threads didn't finish", finished.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        helper.stopListening();
+        awaitPlayCoreThread();
+
+        synchronized (errors) {
+            assertTrue("Unexpected errors: " + errors, errors.isEmpty());
+        }
+        assertEquals("Listener still registered in the manager", 0, registeredListeners.get());
+        assertEquals("Listener registered twice in the manager", 1, maxRegisteredListeners.get());
+        assertEquals("Update info results lost or duplicated", requestedUpdateInfo.get(), receivedUpdateInfo.get());
+    }
+
+    private void runRandomOperation(@NonNull AppUpdatesHelper helper,
+                                    @NonNull InstallStateListener installStateListener,
+                                    @NonNull GetUpdateInfoListener getUpdateInfoListener) {
+        try {
+            switch (ThreadLocalRandom.current().nextInt(6)) {
+                case 0:
+                    helper.startListening(installStateListener);
+                    break;
+                case 1:
+                    helper.stopListening();
+                    break;
+                case 2:
+                    helper.getAppUpdateInfo(getUpdateInfoListener);
+                    // Only counted if the precondition passed, the result may have been received already
+                    requestedUpdateInfo.incrementAndGet();
+                    break;
+                case 3:
+                    helper.completeUpdate();
+                    break;
+                case 4:
+                    helper.addInstallStateListener(installStateListener).remove();
+                    break;
+                default:
+                    dispatchInstallState();
+                    break;
+            }
+        } catch (IllegalStateException e) {
+            // Expected when another thread stopped listening or there's no update info yet
+        }
+    }
+
+    private void dispatchInstallState() {
+        final InstallStateUpdatedListener listener = dispatchingListener.get();
+        if (listener == null) return;
+
+        playCoreThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onStateUpdate(installState);
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private Task<AppUpdateInfo> createCompletingTask() {
+        final Task<AppUpdateInfo> task = mock(Task.class);
+        final AppUpdateInfo info = mock(AppUpdateInfo.class);
+        when(task.isSuccessful()).thenReturn(true);
+        when(task.getResult()).thenReturn(info);
+        when(task.addOnCompleteListener(any(OnCompleteListener.class))).thenAnswer(new Answer<Task<AppUpdateInfo>>() {
+            @Override
+            public Task<AppUpdateInfo> answer(InvocationOnMock invocation) {
+                final OnCompleteListener<AppUpdateInfo> listener = invocation.getArgument(0);
+                playCoreThread.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            listener.onComplete(task);
+                        } catch (Throwable e) {
+                            addError(e);
+                        }
+                    }
+                });
+                return task;
+            }
+        });
+        return task;
+    }
+
+    private void awaitPlayCoreThread() throws InterruptedException {
+        final CountDownLatch idle = new CountDownLatch(1);
+        playCoreThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                idle.countDown();
+            }
+        });
+        assertTrue("Play Core thread didn't finish", idle.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    private void addError(@NonNull Throwable e) {
+        synchronized (errors) {
+            errors.add(e);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import com.google.android.play.core.appupdate.AppUpdateManager;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Checks that the install state hot path doesn't allocate for byte-less states and progress listeners.
+ */
+public class InstallStateAllocationTest {
+    private static final int WARM_UP_EVENTS = 20_000;
+    private static final int MEASURED_EVENTS = 100_000;
+    // Some JVMs allocate a few bytes when reading the allocation counter itself
+    private static final long ALLOCATION_TOLERANCE_BYTES = 1024;
+
+    @Test
+    public void byteless_states_are_shared_instances() {
+        for (AppUpdateInstallState.Status status : AppUpdateInstallState.Status.values()) {
+            for (AppUpdateInstallState.ErrorCode errorCode : AppUpdateInstallState.ErrorCode.values()) {
+                AppUpdateInstallState first = AppUpdateInstallState.of(status, errorCode,
+                        AppUpdateInstallState.BYTES_UNKNOWN, AppUpdateInstallState.BYTES_UNKNOWN);
+                AppUpdateInstallState second = AppUpdateInstallState.of(status, errorCode,
+                        AppUpdateInstallState.BYTES_UNKNOWN, AppUpdateInstallState.BYTES_UNKNOWN);
+
+                assertSame(first, second);
+                assertEquals(status, first.getStatus());
+                assertEquals(errorCode, first.getErrorCode());
+            }
+        }
+    }
+
+    @Test
+    public void byteless_states_do_not_allocate() {
+        assumeAllocationCountingSupported();
+
+        for (int i = 0; i < WARM_UP_EVENTS; i++) {
+            createBytelessState(i);
+        }
+
+        long allocatedBytes = measureAllocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MEASURED_EVENTS; i++) {
+                    createBytelessState(i);
+                }
+            }
+        });
+
+        assertTrue("Allocated " + allocatedBytes + " bytes", allocatedBytes < ALLOCATION_TOLERANCE_BYTES);
+    }
+
+    @Test
+    public void progress_listeners_do_not_allocate() {
+        assumeAllocationCountingSupported();
+
+        final AppUpdatesHelper helper = new AppUpdatesHelper(mock(AppUpdateManager.class));
+        final CountingProgressListener listener = new CountingProgressListener();
+        helper.addInstallProgressListener(listener);
+
+        for (int i = 0; i < WARM_UP_EVENTS; i++) {
+            dispatchProgress(helper, i);
+        }
+
+        long allocatedBytes = measureAllocatedBytes(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MEASURED_EVENTS; i++) {
+                    dispatchProgress(helper, i);
+                }
+            }
+        });
+
+        assertEquals(WARM_UP_EVENTS + MEASURED_EVENTS, listener.events);
+        assertTrue("Allocated " + allocatedBytes + " bytes", allocatedBytes < ALLOCATION_TOLERANCE_BYTES);
+    }
+
+    private static AppUpdateInstallState createBytelessState(int i) {
+        AppUpdateInstallState.Status[] statuses = AppUpdateInstallState.Status.values();
+        return AppUpdateInstallState.of(
+                statuses[i % statuses.length],
+                AppUpdateInstallState.ErrorCode.NO_ERROR,
+                AppUpdateInstallState.BYTES_UNKNOWN,
+                AppUpdateInstallState.BYTES_UNKNOWN);
+    }
+
+    private static void dispatchProgress(AppUpdatesHelper helper, int i) {
+        helper.onInstallState(
+                AppUpdateInstallState.Status.DOWNLOADING,
+                AppUpdateInstallState.ErrorCode.NO_ERROR,
+                i,
+                MEASURED_EVENTS);
+    }
+
+    private static void assumeAllocationCountingSupported() {
+        ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+        assumeTrue(threadMXBean instanceof com.sun.management.ThreadMXBean);
+        assumeTrue(((com.sun.management.ThreadMXBean) threadMXBean).isThreadAllocatedMemorySupported());
+    }
+
+    private static long measureAllocatedBytes(Runnable runnable) {
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long before = threadMXBean.getThreadAllocatedBytes(threadId);
+        runnable.run();
+        return threadMXBean.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    private static class CountingProgressListener implements InstallProgressListener {
+        int events = 0;
+
+        @Override
+        public void onInstallProgress(@NonNull AppUpdateInstallState.Status status,
+                                      @NonNull AppUpdateInstallState.ErrorCode errorCode,
+                                      long bytesDownloaded,
+                                      long totalBytesToDownload) {
+            events++;
+        }
+    }
+}
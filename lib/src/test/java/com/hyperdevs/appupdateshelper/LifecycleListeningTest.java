@@ -0,0 +1,152 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import com.google.android.gms.tasks.OnCompleteListener;
+import com.google.android.gms.tasks.Task;
+import com.google.android.play.core.appupdate.AppUpdateInfo;
+import com.google.android.play.core.appupdate.AppUpdateManager;
+import com.google.android.play.core.install.InstallState;
+import com.google.android.play.core.install.InstallStateUpdatedListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Checks that listeners bound to a lifecycle and listeners added directly don't affect each other.
+ */
+public class LifecycleListeningTest {
+    private AppUpdateManager manager;
+    private AppUpdatesHelper helper;
+    private LifecycleOwner owner;
+    private Lifecycle lifecycle;
+
+    @Before
+    public void setUp() {
+        manager = mock(AppUpdateManager.class);
+        Task<AppUpdateInfo> task = createCompletedTask(mock(AppUpdateInfo.class));
+        when(manager.getAppUpdateInfo()).thenReturn(task);
+        helper = new AppUpdatesHelper(manager);
+
+        lifecycle = mock(Lifecycle.class);
+        when(lifecycle.getCurrentState()).thenReturn(Lifecycle.State.CREATED);
+        owner = mock(LifecycleOwner.class);
+        when(owner.getLifecycle()).thenReturn(lifecycle);
+    }
+
+    @Test
+    public void destroyed_lifecycle_keeps_direct_listening() {
+        CountingListener directListener = new CountingListener();
+        helper.startListening(directListener);
+        DefaultLifecycleObserver observer = bind(new CountingListener());
+        observer.onStart(owner);
+        observer.onDestroy(owner);
+
+        // It would throw if the helper had stopped listening
+        helper.getAppUpdateInfo(new GetUpdateInfoListener() {
+            @Override
+            public void onGetUpdateInfoComplete(@NonNull AppUpdateInfoResult result) {
+                // Not needed
+            }
+        });
+        getDispatchingListener().onStateUpdate(mock(InstallState.class));
+
+        assertEquals(1, directListener.receivedStates);
+    }
+
+    @Test
+    public void same_listener_added_both_ways_is_removed_independently() {
+        CountingListener listener = new CountingListener();
+        helper.startListening(listener);
+        DefaultLifecycleObserver observer = bind(listener);
+        observer.onStart(owner);
+        observer.onStop(owner);
+
+        getDispatchingListener().onStateUpdate(mock(InstallState.class));
+
+        assertEquals(1, listener.receivedStates);
+    }
+
+    @Test
+    public void stop_listening_detaches_lifecycle_observers() {
+        CountingListener listener = new CountingListener();
+        DefaultLifecycleObserver observer = bind(listener);
+        helper.stopListening();
+        observer.onStart(owner);
+
+        verify(lifecycle).removeObserver(observer);
+        verify(manager, never()).registerListener(any(InstallStateUpdatedListener.class));
+    }
+
+    @NonNull
+    private DefaultLifecycleObserver bind(@NonNull InstallStateListener listener) {
+        helper.startListening(owner, listener);
+        ArgumentCaptor<LifecycleObserver> captor = ArgumentCaptor.forClass(LifecycleObserver.class);
+        verify(lifecycle).addObserver(captor.capture());
+        return (DefaultLifecycleObserver) captor.getValue();
+    }
+
+    @NonNull
+    private InstallStateUpdatedListener getDispatchingListener() {
+        ArgumentCaptor<InstallStateUpdatedListener> captor = ArgumentCaptor.forClass(InstallStateUpdatedListener.class);
+        verify(manager).registerListener(captor.capture());
+        return captor.getValue();
+    }
+
+    @SuppressWarnings("unchecked")
+    @NonNull
+    private static Task<AppUpdateInfo> createCompletedTask(@NonNull AppUpdateInfo info) {
+        final Task<AppUpdateInfo> task = mock(Task.class);
+        when(task.isSuccessful()).thenReturn(true);
+        when(task.getResult()).thenReturn(info);
+        when(task.addOnCompleteListener(any(OnCompleteListener.class))).thenAnswer(new Answer<Task<AppUpdateInfo>>() {
+            @Override
+            public Task<AppUpdateInfo> answer(InvocationOnMock invocation) {
+                invocation.<OnCompleteListener<AppUpdateInfo>>getArgument(0).onComplete(task);
+                return task;
+            }
+        });
+        return task;
+    }
+
+    private static final class CountingListener implements InstallStateListener {
+        private int receivedStates = 0;
+
+        @Override
+        public void onInstallStateUpdate(@NonNull AppUpdateInstallState state) {
+            receivedStates++;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import com.google.android.play.core.appupdate.AppUpdateManager;
+import com.google.android.play.core.install.InstallState;
+import com.google.android.play.core.install.InstallStateUpdatedListener;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.lang.ref.WeakReference;
+
+import androidx.annotation.NonNull;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks that the manager shared between helpers doesn't keep destroyed screens in memory.
+ * <p>
+ * The mocked manager plays the role of the process-wide one: it outlives the screens and keeps
+ * the registered listeners.
+ */
+public class ListenerLeakTest {
+    private static final int GC_ATTEMPTS = 50;
+
+    private AppUpdateManager manager;
+
+    @Before
+    public void setUp() {
+        manager = mock(AppUpdateManager.class);
+    }
+
+    @Test
+    public void stopped_helper_does_not_retain_screen() throws InterruptedException {
+        WeakReference<Screen> screen = createDestroyedScreen(false, true);
+
+        assertCollected(screen);
+    }
+
+    @Test
+    public void weak_helper_does_not_retain_screen_that_did_not_stop_listening() throws InterruptedException {
+        WeakReference<Screen> screen = createDestroyedScreen(true, false);
+
+        assertCollected(screen);
+    }
+
+    @Test
+    public void weak_helper_does_not_retain_screen_after_dispatching_events() throws InterruptedException {
+        WeakReference<Screen> screen = createDestroyedScreen(true, false);
+        getDispatchingListener().onStateUpdate(mock(InstallState.class));
+
+        assertCollected(screen);
+    }
+
+    @Test
+    public void weak_helper_receives_events_while_referenced() {
+        Screen screen = new Screen(manager, true);
+        getDispatchingListener().onStateUpdate(mock(InstallState.class));
+
+        assertEquals(1, screen.receivedStates);
+    }
+
+    @Test
+    public void collected_weak_helpers_are_detached_from_manager() throws InterruptedException {
+        WeakReference<Screen> screen = createDestroyedScreen(true, false);
+        InstallStateUpdatedListener dispatchingListener = getDispatchingListener();
+        assertCollected(screen);
+
+        verify(manager, never()).unregisterListener(dispatchingListener);
+        dispatchingListener.onStateUpdate(mock(InstallState.class));
+        verify(manager).unregisterListener(dispatchingListener);
+    }
+
+    /**
+     * Creates a screen that starts listening and then is destroyed. No local variable keeps the screen,
+     * so only the helper can keep it in memory.
+     */
+    @NonNull
+    private WeakReference<Screen> createDestroyedScreen(boolean weakListenerDispatch, boolean stopListening) {
+        Screen screen = new Screen(manager, weakListenerDispatch);
+        if (stopListening) {
+            screen.helper.stopListening();
+        }
+        return new WeakReference<>(screen);
+    }
+
+    @NonNull
+    private InstallStateUpdatedListener getDispatchingListener() {
+        ArgumentCaptor<InstallStateUpdatedListener> captor = ArgumentCaptor.forClass(InstallStateUpdatedListener.class);
+        verify(manager).registerListener(captor.capture());
+        return captor.getValue();
+    }
+
+    private static void assertCollected(@NonNull WeakReference<?> reference) throws InterruptedException {
+        for (int i = 0; i < GC_ATTEMPTS && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertNull("The screen is still in memory", reference.get());
+    }
+
+    /**
+     * Stand-in for an Activity: it owns a helper and listens with an anonymous class that references it.
+     */
+    private static final class Screen {
+        final AppUpdatesHelper helper;
+        int receivedStates = 0;
+
+        Screen(@NonNull AppUpdateManager manager, boolean weakListenerDispatch) {
+            helper = new AppUpdatesHelper(manager);
+            helper.setWeakListenerDispatch(weakListenerDispatch);
+            helper.startListening(new InstallStateListener() {
+                @Override
+                public void onInstallStateUpdate(@NonNull AppUpdateInstallState state) {
+                    receivedStates++;
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import com.google.android.play.core.install.model.InstallErrorCode;
+import com.google.android.play.core.install.model.InstallStatus;
+import com.google.android.play.core.install.model.UpdateAvailability;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that the Play Core constants copied to the core module still match the Play Core ones.
+ */
+public class PlayCoreValuesTest {
+    @Test
+    public void install_status_values_match_play_core() {
+        assertEquals(InstallStatus.UNKNOWN, PlayCoreValues.InstallStatus.UNKNOWN);
+        assertEquals(InstallStatus.PENDING, PlayCoreValues.InstallStatus.PENDING);
+        assertEquals(InstallStatus.DOWNLOADING, PlayCoreValues.InstallStatus.DOWNLOADING);
+        assertEquals(InstallStatus.INSTALLING, PlayCoreValues.InstallStatus.INSTALLING);
+        assertEquals(InstallStatus.INSTALLED, PlayCoreValues.InstallStatus.INSTALLED);
+        assertEquals(InstallStatus.FAILED, PlayCoreValues.InstallStatus.FAILED);
+        assertEquals(InstallStatus.CANCELED, PlayCoreValues.InstallStatus.CANCELED);
+        assertEquals(InstallStatus.REQUIRES_UI_INTENT, PlayCoreValues.InstallStatus.REQUIRES_UI_INTENT);
+        assertEquals(InstallStatus.DOWNLOADED, PlayCoreValues.InstallStatus.DOWNLOADED);
+    }
+
+    @Test
+    public void install_error_code_values_match_play_core() {
+        assertEquals(InstallErrorCode.NO_ERROR, PlayCoreValues.InstallErrorCode.NO_ERROR);
+        assertEquals(InstallErrorCode.NO_ERROR_PARTIALLY_ALLOWED, PlayCoreValues.InstallErrorCode.NO_ERROR_PARTIALLY_ALLOWED);
+        assertEquals(InstallErrorCode.ERROR_UNKNOWN, PlayCoreValues.InstallErrorCode.ERROR_UNKNOWN);
+        assertEquals(InstallErrorCode.ERROR_API_NOT_AVAILABLE, PlayCoreValues.InstallErrorCode.ERROR_API_NOT_AVAILABLE);
+        assertEquals(InstallErrorCode.ERROR_INVALID_REQUEST, PlayCoreValues.InstallErrorCode.ERROR_INVALID_REQUEST);
+        assertEquals(InstallErrorCode.ERROR_INSTALL_UNAVAILABLE, PlayCoreValues.InstallErrorCode.ERROR_INSTALL_UNAVAILABLE);
+        assertEquals(InstallErrorCode.ERROR_INSTALL_NOT_ALLOWED, PlayCoreValues.InstallErrorCode.ERROR_INSTALL_NOT_ALLOWED);
+        assertEquals(InstallErrorCode.ERROR_DOWNLOAD_NOT_PRESENT, PlayCoreValues.InstallErrorCode.ERROR_DOWNLOAD_NOT_PRESENT);
+        assertEquals(InstallErrorCode.ERROR_PLAY_STORE_NOT_FOUND, PlayCoreValues.InstallErrorCode.ERROR_PLAY_STORE_NOT_FOUND);
+        assertEquals(InstallErrorCode.ERROR_APP_NOT_OWNED, PlayCoreValues.InstallErrorCode.ERROR_APP_NOT_OWNED);
+        assertEquals(InstallErrorCode.ERROR_INTERNAL_ERROR, PlayCoreValues.InstallErrorCode.ERROR_INTERNAL_ERROR);
+    }
+
+    @Test
+    public void update_availability_values_match_play_core() {
+        assertEquals(UpdateAvailability.UNKNOWN, PlayCoreValues.UpdateAvailability.UNKNOWN);
+        assertEquals(UpdateAvailability.UPDATE_NOT_AVAILABLE, PlayCoreValues.UpdateAvailability.UPDATE_NOT_AVAILABLE);
+        assertEquals(UpdateAvailability.UPDATE_AVAILABLE, PlayCoreValues.UpdateAvailability.UPDATE_AVAILABLE);
+        assertEquals(UpdateAvailability.DEVELOPER_TRIGGERED_UPDATE_IN_PROGRESS,
+                PlayCoreValues.UpdateAvailability.DEVELOPER_TRIGGERED_UPDATE_IN_PROGRESS);
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the backoff delays of a retry policy, with fixed values instead of random ones.
+ */
+public class RetryPolicyTest {
+    // Largest value returned by the random generator
+    private static final double ALMOST_ONE = Math.nextDown(1.0);
+
+    private final RetryPolicy policy = new RetryPolicy(10, 500, 10_000);
+
+    @Test
+    public void delay_upper_bound_doubles_on_every_attempt() {
+        assertEquals(500, policy.getDelayMillis(1, ALMOST_ONE));
+        assertEquals(1000, policy.getDelayMillis(2, ALMOST_ONE));
+        assertEquals(2000, policy.getDelayMillis(3, ALMOST_ONE));
+        assertEquals(4000, policy.getDelayMillis(4, ALMOST_ONE));
+    }
+
+    @Test
+    public void delay_is_capped_to_the_maximum_delay() {
+        assertEquals(10_000, policy.getDelayMillis(6, ALMOST_ONE));
+        assertEquals(10_000, policy.getDelayMillis(40, ALMOST_ONE));
+        assertEquals(10_000, policy.getDelayMillis(Integer.MAX_VALUE, ALMOST_ONE));
+    }
+
+    @Test
+    public void delay_is_a_random_fraction_of_the_upper_bound() {
+        assertEquals(0, policy.getDelayMillis(3, 0));
+        assertEquals(1000, policy.getDelayMillis(3, 0.5));
+
+        for (int attempt = 1; attempt <= 10; attempt++) {
+            long delayMillis = policy.getDelayMillis(attempt);
+            assertTrue(delayMillis >= 0 && delayMillis <= 10_000);
+        }
+    }
+}
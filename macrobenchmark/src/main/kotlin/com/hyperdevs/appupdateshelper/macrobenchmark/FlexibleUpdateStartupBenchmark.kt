@@ -0,0 +1,69 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper.macrobenchmark
+
+import android.content.Intent
+import androidx.benchmark.macro.FrameTimingMetric
+import androidx.benchmark.macro.StartupMode
+import androidx.benchmark.macro.StartupTimingMetric
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Measures the cold startup and frame timings of the flexible update screen of the example app, as copied
+ * in its `benchmark` build type, with a `FakeAppUpdatesHelper` set up in different ways:
+ *
+ * - `none`: no helper, as the baseline.
+ * - `eager`: the helper checks for updates in `onCreate()`.
+ * - `lazy`: the helper uses an `AppUpdateInfoCache` and checks for updates after the first frame.
+ */
+@RunWith(Parameterized::class)
+class FlexibleUpdateStartupBenchmark(private val helperMode: String) {
+
+    companion object {
+        private const val ACTIVITY_CLASS_NAME = "com.hyperdevs.appupdateshelper.app.benchmark.StartupBenchmarkActivity"
+
+        // Must match StartupBenchmarkActivity.EXTRA_HELPER_MODE
+        private const val EXTRA_HELPER_MODE = "helper_mode"
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "helperMode={0}")
+        fun helperModes() = listOf("none", "eager", "lazy")
+    }
+
+    @get:Rule
+    val benchmarkRule = MacrobenchmarkRule()
+
+    @Test
+    fun coldStartup() = benchmarkRule.measureRepeated(
+            packageName = targetPackageName,
+            metrics = listOf(StartupTimingMetric(), FrameTimingMetric()),
+            iterations = STARTUP_ITERATIONS,
+            startupMode = StartupMode.COLD
+    ) {
+        pressHome()
+        startActivityAndWait(Intent().apply {
+            setClassName(packageName, ACTIVITY_CLASS_NAME)
+            putExtra(EXTRA_HELPER_MODE, helperMode)
+        })
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2021 HyperDevs
+ *
+ * Copyright (C) 2019 BQ
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.hyperdevs.appupdateshelper.macrobenchmark
+
+import androidx.test.platform.app.InstrumentationRegistry
+
+/**
+ * Package name of the app under test, set by the build from the same configuration as the app module.
+ */
+val targetPackageName: String
+    get() = InstrumentationRegistry.getArguments().getString("targetAppId")
+            ?: "com.hyperdevs.appupdateshelper.app"
+
+/**
+ * Number of launches measured for each benchmark.
+ */
+const val STARTUP_ITERATIONS = 10